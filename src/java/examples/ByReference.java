@@ -2,6 +2,8 @@ package examples;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class ByReference {
 
@@ -13,6 +15,19 @@ public class ByReference {
         System.out.println("The config is : " + configHolder.getConfig());
         map.put("key2", "value2");
         System.out.println("The config after modifying the initial map : " + configHolder.getConfig());
+
+        //SnapshotConfigHolder copies the map, changes to the initial map don't show through
+        SnapshotConfigHolder snapshotHolder = new SnapshotConfigHolder(map);
+        map.put("key3", "value3");
+        System.out.println("The snapshot config after modifying the initial map : " + snapshotHolder.getConfig());
+        //several changes are published together, readers see all of them or none
+        snapshotHolder.update(conf -> {
+            conf.put("key1", "updated");
+            conf.remove("key2");
+        });
+        System.out.println("key1 after the update : " + snapshotHolder.get("key1"));
+        snapshotHolder.reload(Map.of("key1", "reloaded"));
+        System.out.println("The snapshot config after a reload : " + snapshotHolder.getConfig());
     }
 
     static class ConfigHolder {
@@ -28,4 +43,45 @@ public class ByReference {
         }
     }
 
+    //Read-copy-update: the config is an immutable snapshot behind one AtomicReference.
+    //Readers just follow the reference, no lock, no allocation, and every read sees a complete snapshot.
+    //Writers copy the current snapshot, change the copy and publish it with a compareAndSet,
+    //retrying if another writer got in first. That makes writes expensive, which is fine for config
+    //that is read all the time and changed rarely.
+    static class SnapshotConfigHolder {
+        private final AtomicReference<Map<String, String>> conf;
+
+        SnapshotConfigHolder(Map<String, String> conf) {
+            this.conf = new AtomicReference<>(Map.copyOf(conf));
+        }
+
+        //the returned map is immutable and doesn't change with later updates
+        public Map<String, String> getConfig() {
+            return conf.get();
+        }
+
+        public String get(String key) {
+            return conf.get().get(key);
+        }
+
+        //Applies all changes made by the consumer as one new snapshot.
+        //The consumer may be called more than once when writers race, so it must not have side effects.
+        public void update(Consumer<Map<String, String>> changes) {
+            while (true) {
+                Map<String, String> current = conf.get();
+                Map<String, String> copy = new HashMap<>(current);
+                changes.accept(copy);
+                if (conf.compareAndSet(current, Map.copyOf(copy))) {
+                    return;
+                }
+            }
+        }
+
+        //Replaces the whole config, e.g. after reading it again from a file.
+        //The snapshot is built before it's published, readers only see the reference change.
+        public void reload(Map<String, String> newConf) {
+            conf.set(Map.copyOf(newConf));
+        }
+    }
+
 }
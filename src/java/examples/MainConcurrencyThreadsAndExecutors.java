@@ -1,9 +1,14 @@
 package examples;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import examples.utils.AsyncPipeline;
+import examples.utils.BlockingIoExecutors;
 import examples.utils.ConcurrentUtils;
+import examples.utils.ScatterGather;
+import examples.utils.TimingWheel;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.*;
@@ -63,6 +68,28 @@ public class MainConcurrencyThreadsAndExecutors {
 
         System.out.println("CompletableFuture Result is: " + joinedResults);
 
+        //================================================================
+        System.out.println("Example CompletableFuture pipeline on dedicated executors: ");
+        //================================================================
+        //The example above blocks for 3 seconds per number on the ForkJoin common pool, which all parallel streams
+        //of the JVM share. AsyncPipeline runs the blocking stage on an I/O executor and the cheap
+        //transformations on a compute pool of its own, and keeps queue depth and latency per stage
+        try (AsyncPipeline pipeline = AsyncPipeline.create(100)) {
+            List<CompletableFuture<String>> pipelineResults = Stream.of(1, 5, 20)
+                    .map(num -> pipeline.supplyBlocking("square", () -> squareWithHeavyComputation(num))
+                            .thenApply("toString", squareNum -> toString(squareNum))
+                            .thenApply("prefix", stringNum -> String.format("Prefix %s", stringNum))
+                            .exceptionally(e -> {
+                                e.printStackTrace();
+                                return "";
+                            })
+                            .thenApply("suffix", prefixedNum -> String.format("%s Suffix", prefixedNum))
+                            .toFuture())
+                    .toList();
+            System.out.println("Pipeline Result is: " + pipelineResults.stream().map(CompletableFuture::join).toList());
+            pipeline.snapshot().values().forEach(System.out::println);
+        }
+
 
         System.out.println("Creating runnable task: ");
         Runnable task = () -> {
@@ -109,6 +136,33 @@ public class MainConcurrencyThreadsAndExecutors {
                 new LinkedBlockingQueue(workQueueSize)
         );
 
+        //================================================================
+        System.out.println("Blocking I/O executor with virtual threads: ");
+        //================================================================
+        //Each of the 1024 platform threads above reserves its own stack. On JDK 21+ a virtual thread per task
+        //is much cheaper while it's blocked, so way more calls can wait at the same time.
+        //The cap keeps the number of concurrent calls reasonable for the downstream, AUTO falls back to
+        //platform threads on older JDKs, at most BlockingIoExecutors.MAX_PLATFORM_THREADS (1024) of them
+        ExecutorService ioExecutor = BlockingIoExecutors.newExecutor(BlockingIoExecutors.Mode.AUTO, 10_000);
+        System.out.println("Virtual threads available? " + BlockingIoExecutors.isVirtualThreadsAvailable());
+        long ioStart = System.nanoTime();
+        List<Future<Integer>> ioResults = Stream.iterate(0, i -> i + 1)
+                .limit(10_000)
+                .map(i -> ioExecutor.submit(() -> {
+                    TimeUnit.MILLISECONDS.sleep(100);
+                    return i;
+                }))
+                .toList();
+        ioResults.forEach(f -> {
+            try {
+                f.get();
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+        });
+        System.out.println("10000 blocking calls took " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ioStart) + " ms");
+        ConcurrentUtils.stop(ioExecutor);
+
         //================================================================
         System.out.println("Threads example using executor: ");
         //================================================================
@@ -123,6 +177,16 @@ public class MainConcurrencyThreadsAndExecutors {
         //The stop method is defined in ConcurrentUtils.stop module
         ConcurrentUtils.stop(executor);
 
+        //Stopping several executors one after the other with stop() can take 60 seconds each.
+        //stopAll() shuts all of them down at once under one deadline and reports the tasks that never ran or were interrupted
+        ExecutorService workers = Executors.newFixedThreadPool(1);
+        ExecutorService loggers = Executors.newFixedThreadPool(1);
+        workers.submit(callable("work", 2));
+        workers.submit(callable("more work", 2));
+        loggers.submit(callable("log", 1));
+        ConcurrentUtils.ShutdownReport shutdownReport = ConcurrentUtils.stopAll(Duration.ofSeconds(3), workers, loggers);
+        System.out.println(shutdownReport + ", tasks to resubmit: " + shutdownReport.getDrainedTasks());
+
         //================================================================
         System.out.println("Example callables: ");
         //================================================================
@@ -223,6 +287,22 @@ public class MainConcurrencyThreadsAndExecutors {
         System.out.println(result1);
         ConcurrentUtils.stop(executor4);
 
+        //================================================================
+        System.out.println("Example scatter-gather with a deadline: ");
+        //================================================================
+        //invokeAll waits for every callable, invokeAny returns only the fastest one.
+        //ScatterGather returns whatever completed before the deadline and cancels the rest
+        ExecutorService executor7 = Executors.newFixedThreadPool(3);
+        ScatterGather scatterGather = new ScatterGather(executor7);
+        try {
+            ScatterGather.Result<String> gathered = scatterGather.invokeAll(callables1, 2500, TimeUnit.MILLISECONDS);
+            //task1 and task2 are done after 2 seconds, task3 would need 3 seconds
+            System.out.println("Outcomes: " + gathered + ", completed: " + gathered.getValues());
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        ConcurrentUtils.stop(executor7);
+
         //================================================================
         System.out.println("Scheduled Executors for running tasks periodically: ");
         //================================================================
@@ -267,5 +347,32 @@ public class MainConcurrencyThreadsAndExecutors {
         //and the start of the next task
         executor6.scheduleWithFixedDelay(task6, 1, 1, TimeUnit.SECONDS);
         ConcurrentUtils.stop(executor6);
+
+        //================================================================
+        System.out.println("Timing wheel for lots of timeouts: ");
+        //================================================================
+        //Every schedule() on a ScheduledExecutorService goes into a heap, O(log n) to add and to cancel.
+        //TimingWheel puts timeouts into the bucket of their tick, scheduling and cancelling is O(1).
+        //Precision is one tick (10 ms by default). Tasks run on the wheel thread unless an executor is given,
+        //the fixed rate task below blocks, so it gets one: on the wheel thread it would hold up every other timeout.
+        ExecutorService timeoutExecutor = Executors.newCachedThreadPool();
+        try (TimingWheel timingWheel = new TimingWheel(TimingWheel.DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS,
+                TimingWheel.DEFAULT_WHEEL_SIZE, timeoutExecutor)) {
+            TimingWheel.Timeout requestTimeout = timingWheel.schedule(() -> System.out.println("request timed out"), 5, TimeUnit.SECONDS);
+            //the response came in time
+            requestTimeout.cancel();
+            timingWheel.schedule(() -> System.out.println("Timeout: " + System.nanoTime()), 500, TimeUnit.MILLISECONDS);
+            //unlike scheduleAtFixedRate above, runs missed because a run took longer than the period are skipped
+            //and counted instead of being started back to back
+            TimingWheel.Timeout fixedRate = timingWheel.scheduleAtFixedRate(() -> {
+                System.out.println("Fixed rate: " + System.nanoTime());
+                ConcurrentUtils.sleep(2);
+            }, 0, 1, TimeUnit.SECONDS);
+            ConcurrentUtils.sleep(5);
+            fixedRate.cancel();
+            System.out.println("Overruns: " + fixedRate.getOverruns());
+        } finally {
+            ConcurrentUtils.stop(timeoutExecutor);
+        }
     }
 }
@@ -1,6 +1,15 @@
 package examples;
 
+import examples.utils.DumpIndex;
+import examples.utils.DumpReader;
+import examples.utils.DumpWriter;
+import examples.utils.FileRewrite;
+import examples.utils.FileTreeIndex;
+import examples.utils.ParallelFileWalker;
+import examples.utils.ParallelLines;
+
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -55,6 +64,35 @@ public class MainFileIO {
             e.printStackTrace();
         }
         
+        System.out.println("find files in a directory or sub directory using parallel walker: ");
+        //Same depth limit and matcher as Files.find, but every directory is listed by its own fork/join task.
+        //Paths are streamed as soon as they are found in no particular order, so sort only if you need to
+        try (Stream<Path> stream = ParallelFileWalker.find(start, maxDepth, (path, attr) ->
+                String.valueOf(path).endsWith(".js"))) {
+            String joined = stream
+                    .sorted()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining("; "));
+            System.out.println("Found: " + joined);
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+        }
+
+        System.out.println("find files using an in memory index of the directory tree: ");
+        //The tree is walked once, afterwards update() only lists the directories whose mtime changed
+        //and the query is answered from memory instead of walking the tree again
+        try (FileTreeIndex index = FileTreeIndex.build(start, maxDepth)) {
+            index.update();
+            String joined = index.findBySuffix(".js")
+                    .stream()
+                    .sorted()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining("; "));
+            System.out.println("Found: " + joined);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
         System.out.println("reading files modifying the content and writing to an another files using readAllLines: ");
         try {
             //this method is not memory-efficient because the whole file will be read into memory
@@ -67,6 +105,18 @@ public class MainFileIO {
             e.printStackTrace();
         }
  
+        System.out.println("appending to a copy of a file without reading it into memory: ");
+        //The unchanged content is copied with FileChannel.transferTo into a temp file which then atomically
+        //replaces the target, only the appended line goes through the heap
+        try {
+            FileRewrite.of(Paths.get("res/example.js"))
+                    .append("print('foobar');")
+                    .writeTo(Paths.get("res/example-out.js"));
+        } catch (IOException e) {
+            System.out.println("Failed to read file res/example.js");
+            e.printStackTrace();
+        }
+
         System.out.println("reading line by line of a file using lines: ");
         //Instead of reading all lines into memory at once, 
         //this method reads and streams each line one by one via streams
@@ -98,6 +148,32 @@ public class MainFileIO {
             e1.printStackTrace();
         } 
 
+        System.out.println("reading lines in parallel chunks of a memory mapped file: ");
+        //Files.lines() and BufferedReader.lines() are read by a single thread.
+        //ParallelLines cuts the file at line boundaries into one chunk per core and filters the chunks in parallel,
+        //the lines still come out in file order
+        try {
+            ParallelLines prints = ParallelLines.of(Paths.get("res/example.js"))
+                    .filter(line -> line.contains("print"));
+            prints.collect(Collectors.mapping(String::trim, Collectors.toList()))
+                    .forEach(System.out::println);
+            System.out.println("countPrints: " + prints.count());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        System.out.println("searching the raw bytes instead of decoding every line: ");
+        //grep gives the same lines as filter(line -> line.contains("print")),
+        //but only the lines containing the bytes of "print" are decoded to a String
+        try {
+            long countPrints = ParallelLines.of(Paths.get("res/example.js"))
+                    .grep("print")
+                    .count();
+            System.out.println("countPrints: " + countPrints);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
         System.out.println("writing line using buffered writer: ");
         try (BufferedWriter writer = Files.newBufferedWriter(Paths.get("res/example-out.js"))) {
             writer.write("print('Hi from writer');");
@@ -105,6 +181,16 @@ public class MainFileIO {
             e.printStackTrace();
         }
 
+        System.out.println("Writing byte data to a file in batches: ");
+        //Records are collected in pooled direct buffers and written with one gathering write per flush,
+        //instead of a write per record like DataOutputStream.write on an unbuffered stream
+        try (DumpWriter writer = DumpWriter.open(Paths.get("res/bytesDump-out"))) {
+            writer.write("foo".getBytes());
+            writer.write("bar".getBytes());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
         System.out.println("Reading byte data stored in a file using DataInputStream: ");
         File[] files = Stream.of("res/bytesDump")
                 .map(File::new)
@@ -112,6 +198,31 @@ public class MainFileIO {
                 .toArray(size -> new File[]{});
 
         readDumps(files);
+
+        System.out.println("Reading the same byte data using a memory mapped file: ");
+        //Every message is a read-only view into the mapped file, no bytes are copied onto the heap
+        List<ByteBuffer> messages = mapDumps(files);
+        System.out.println("Messages: " + messages.size());
+
+        System.out.println("Streaming the byte data record by record: ");
+        //Records are pulled on demand so memory stays flat no matter how large the dump files are.
+        //Same as Files.lines() the stream holds open files and has to be closed
+        try (Stream<ByteBuffer> stream = streamDumps(files)) {
+            long totalBytes = stream
+                    .mapToLong(ByteBuffer::remaining)
+                    .sum();
+            System.out.println("Total payload bytes: " + totalBytes);
+        }
+
+        System.out.println("Processing the byte data in parallel using an offset index: ");
+        //The first run scans each file once and writes a <file>.idx sidecar with the record offsets,
+        //later runs reuse it. With the offsets known the records can be split across the ForkJoin common pool
+        try (Stream<ByteBuffer> stream = DumpIndex.parallelStream(Stream.of(files).map(File::toPath).toArray(Path[]::new))) {
+            long totalBytes = stream
+                    .mapToLong(ByteBuffer::remaining)
+                    .sum();
+            System.out.println("Total payload bytes: " + totalBytes);
+        }
     }
 
     static public List<byte[]> readDumps(File... files) throws IOException {
@@ -132,4 +243,25 @@ public class MainFileIO {
         }
         return messages;
     }
+
+    static public List<ByteBuffer> mapDumps(File... files) throws IOException {
+        List<ByteBuffer> messages = new ArrayList<>();
+        for (File file : files) {
+            try (DumpReader reader = DumpReader.open(file.toPath())) {
+                ByteBuffer message;
+                // next() returns null at the end of the file instead of throwing EOFException
+                while ((message = reader.next()) != null) {
+                    messages.add(message);
+                }
+            }
+        }
+        return messages;
+    }
+
+    static public Stream<ByteBuffer> streamDumps(File... files) {
+        Path[] paths = Stream.of(files)
+                .map(File::toPath)
+                .toArray(Path[]::new);
+        return DumpReader.stream(paths);
+    }
 }
@@ -1,11 +1,17 @@
 package examples;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.DoubleSummaryStatistics;
+import java.util.IntSummaryStatistics;
 import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Supplier;
@@ -14,6 +20,14 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import examples.utils.ConcurrentCollectors;
+import examples.utils.LongLongHashMap;
+import examples.utils.LongObjectHashMap;
+import examples.utils.Pipeline;
+import examples.utils.PrimitiveCollectors;
+import examples.utils.RopeJoiner;
+import examples.utils.StreamTracer;
+
 public class MainStreamBuilding {
 
     public static void main(String[] args) {
@@ -125,6 +139,21 @@ public class MainStreamBuilding {
          })
          .forEach(s -> System.out.println("forEach: " + s));
 
+         System.out.println("Example letting Pipeline put filter before map: ");
+         // Pipeline reorders the declared stages with the help of hints: filterSource tests the source element,
+         // so it runs before the (expensive) map, which is now only called for the strings that pass
+         Pipeline<String, String> pipeline = Pipeline.of(Arrays.asList("d2", "a2", "b1", "b3", "c"))
+             .map(s -> {
+                 System.out.println("map: " + s);
+                 return s.toUpperCase();
+             }, Pipeline.Hints.pure().named("toUpperCase").cost(10))
+             .filterSource(s -> {
+                 System.out.println("filter: " + s);
+                 return s.startsWith("a");
+             }, Pipeline.Hints.pure().named("startsWith a").selectivity(0.2));
+         System.out.println(pipeline.explain());
+         pipeline.stream().forEach(s -> System.out.println("forEach: " + s));
+
          System.out.println("Extending above example by adding sorted: ");
          // Sorting is a special kind of intermediate operation (stateful operation). 
          // In sorting you need to maintain the previous state of the element to get a ordered collection.
@@ -145,6 +174,17 @@ public class MainStreamBuilding {
              .forEach(s -> {
                  System.out.println("forEach: " + s);
              });
+
+         System.out.println("Example tracing the stages of a stream (StreamTracer): ");
+         // The same as the println calls above, without touching the lambdas:
+         // every stage reports how many elements went in and out, the time spent in it and the threads.
+         // Sample every call (sampleRate 1) as the stream is tiny
+         StreamTracer.trace("order matters", Stream.of("d2", "a2", "b1", "b3", "c"), 1)
+             .sorted()
+             .filter(s -> s.startsWith("a"))
+             .map(s -> s.toUpperCase())
+             .forEach(s -> System.out.println("forEach: " + s));
+         System.out.print(StreamTracer.report());
          
          System.out.println("Extending reusing stream: ");
          // In java8 streams cannot be reused. 
@@ -184,6 +224,18 @@ public class MainStreamBuilding {
                   .stream()
                   .collect(Collectors.groupingBy(p -> p.getAge()));
           personByAge.forEach((age, p) ->  System.out.printf("age: %s, person: %s", age, p));
+
+          System.out.println("Example groupingBy on int keys without boxing (PrimitiveCollectors): ");
+          //groupingBy above boxes every age into an Integer and creates a HashMap entry per age.
+          //For aggregations over lots of elements PrimitiveCollectors group into maps of primitive longs
+          LongLongHashMap countByAge = persons
+                  .stream()
+                  .collect(PrimitiveCollectors.countingByInt(Person::getAge));
+          System.out.println("count by age: " + countByAge + ", 23 years old: " + countByAge.getOrDefault(23, 0));
+          LongObjectHashMap<IntSummaryStatistics> ageStatisticsByNameLength = persons
+                  .stream()
+                  .collect(PrimitiveCollectors.summarizingByInt(p -> p.getName().length(), Person::getAge));
+          System.out.println("age statistics by name length: " + ageStatisticsByNameLength);
           
           System.out.println("Example collectors aggregations: ");
           Double averageAge = persons
@@ -214,6 +266,23 @@ public class MainStreamBuilding {
                           p -> p.getName(), 
                           (name1, name2) -> name1 + "; " + name2));
           System.out.println(map);
+
+          System.out.println("Example concurrent groupingBy and toMap on a parallel stream (ConcurrentCollectors): ");
+          //The collectors above give every parallel task its own map and merge them at the end.
+          //ConcurrentCollectors are CONCURRENT and UNORDERED: all threads add to one ConcurrentHashMap,
+          //so the order of the names per age is random and the merge function should not depend on it
+          Map<Integer, List<String>> namesByAge = persons
+                  .parallelStream()
+                  .collect(ConcurrentCollectors.groupingBy(p -> p.getAge(), Collectors.mapping(p -> p.getName(), Collectors.toList())));
+          System.out.println(namesByAge);
+          Map<Integer, Long> countByAgeConcurrent = persons
+                  .parallelStream()
+                  .collect(ConcurrentCollectors.counting(p -> p.getAge()));
+          System.out.println(countByAgeConcurrent);
+          ConcurrentMap<Integer, Integer> nameLengthByAge = persons
+                  .parallelStream()
+                  .collect(ConcurrentCollectors.toMap(p -> p.getAge(), p -> p.getName().length(), Integer::sum));
+          System.out.println(nameLengthByAge);
           
           System.out.println("Example create your own collectors: ");
           Collector<Person, StringJoiner, String> personNameCollector = 
@@ -227,6 +296,29 @@ public class MainStreamBuilding {
                   .stream()
                   .collect(personNameCollector);
           System.out.println(names);
+
+          System.out.println("Example joining large texts (RopeJoiner): ");
+          //The collector above creates an upper-cased String per person and StringJoiner copies all of it again
+          //when it grows or merges. RopeJoiner upper-cases while copying into pooled chunks and merges without copying.
+          String upperCaseNames = persons
+                  .parallelStream()
+                  .map(p -> p.getName())
+                  .collect(RopeJoiner.joining(" | ", "", "", RopeJoiner.Case.UPPER));
+          System.out.println(upperCaseNames);
+          //or straight into a Writer, without building the String
+          RopeJoiner csvLine = persons
+                  .stream()
+                  .map(p -> p.getName())
+                  .collect(RopeJoiner.toJoiner(";", "", "\n", RopeJoiner.Case.AS_IS));
+          try {
+              Writer out = new OutputStreamWriter(System.out);
+              csvLine.writeTo(out);
+              out.flush();
+          } catch (IOException e) {
+              throw new UncheckedIOException(e);
+          } finally {
+              csvLine.release();
+          }
           
           System.out.println("Example flatMap: ");
           // Each object is transformed to zero or multiple other objects
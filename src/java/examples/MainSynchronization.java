@@ -6,13 +6,22 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.StampedLock;
 import java.util.stream.IntStream;
 
+import examples.utils.AdaptiveLimiter;
 import examples.utils.ConcurrentUtils;
+import examples.utils.Counters;
+import examples.utils.LockProfiler;
+import examples.utils.OptimisticMap;
+import examples.utils.ProfiledReadWriteLock;
+import examples.utils.ProfiledReentrantLock;
+import examples.utils.StripedCounter;
 
 public class MainSynchronization {
 
@@ -54,6 +63,17 @@ public class MainSynchronization {
         //    }
         //}
         System.out.println("Count: " + count);
+
+        System.out.println("Counting from many threads without a shared lock (StripedCounter): ");
+        //synchronized increment() is correct but every thread waits for the same monitor.
+        //A striped counter gives each core its own cell on its own cache line and sums the cells when read
+        StripedCounter requests = Counters.counter("requests");
+        ExecutorService executor2 = Executors.newFixedThreadPool(2);
+        IntStream.range(0, 10000)
+            .forEach(i -> executor2.submit(requests::increment));
+        ConcurrentUtils.stop(executor2);
+        System.out.println("Count: " + requests.sum());
+        System.out.println("Snapshot: " + requests.snapshot());
         
         
         System.out.println("ReentrantLock (mutial exclusion lock)");
@@ -203,6 +223,15 @@ public class MainSynchronization {
         });
         ConcurrentUtils.stop(executor6);
 
+        System.out.println("Read mostly map using optimistic reads (OptimisticMap): ");
+        //The optimistic read from above turned into a map. get() only falls back to a read lock
+        //when a writer changed the map while it was reading
+        OptimisticMap<String, String> config = new OptimisticMap<>(Map.of("foo", "bar"));
+        ExecutorService executor9 = Executors.newFixedThreadPool(2);
+        executor9.submit(() -> config.putAll(Map.of("foo", "baz", "timeout", "5")));
+        executor9.submit(() -> System.out.println("foo: " + config.get("foo")));
+        ConcurrentUtils.stop(executor9);
+
         System.out.println("StampedLock convert read lock to write lock (tryConvertToWriteLock): ");
         //because of the above issue sometimes it is useful to convert read lock into 
         //write lock without unlocking and locking again. Use tryConvertToWriteLock() for that purpose
@@ -265,8 +294,76 @@ public class MainSynchronization {
         };
 
         IntStream.range(0, 10)
-            .forEach(i -> executor.submit(longRunningTask));
+            .forEach(i -> executor8.submit(longRunningTask));
         ConcurrentUtils.stop(executor8);
+
+        System.out.println("Adaptive concurrency limit (AdaptiveLimiter): ");
+        //Semaphore(5) is a guess. AdaptiveLimiter starts at 5 and moves the limit with the latency of the calls:
+        //the simulated downstream below gets slower once more than 8 calls run at the same time,
+        //so the limit settles around there. Calls that don't get a permit wait up to a second in the queue
+        AdaptiveLimiter limiter = AdaptiveLimiter.gradient(5, 50);
+        AtomicInteger running = new AtomicInteger();
+        ExecutorService executor10 = Executors.newFixedThreadPool(20);
+        Runnable limitedTask = () -> {
+            try {
+                AdaptiveLimiter.Permit permit = limiter.tryAcquire(1, TimeUnit.SECONDS);
+                if (permit == null) {
+                    System.out.println("Could not acquire permit");
+                    return;
+                }
+                //every permit has to be given back exactly once, so it's released in finally:
+                //onSuccess() with the latency, onIgnore() if the call failed for reasons unrelated to the load
+                boolean succeeded = false;
+                int concurrent = running.incrementAndGet();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(10 + Math.max(0, concurrent - 8) * 10);
+                    succeeded = true;
+                } finally {
+                    running.decrementAndGet();
+                    if (succeeded) {
+                        permit.onSuccess();
+                    } else {
+                        permit.onIgnore();
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        IntStream.range(0, 2000)
+            .forEach(i -> executor10.submit(limitedTask));
+        ConcurrentUtils.stop(executor10);
+        System.out.println(limiter.snapshot());
+
+        System.out.println("Lock contention profiling (ProfiledReentrantLock, ProfiledReadWriteLock, ProfiledStampedLock): ");
+        //drop-in replacements for the locks above which record wait and hold times per lock name.
+        //LockProfiler.snapshot() shows which locks threads wait for, see JAVA_FLIGHT_RECORDER.md for the JFR events
+        ReentrantLock profiledLock = new ProfiledReentrantLock("count");
+        ReadWriteLock profiledReadWriteLock = new ProfiledReadWriteLock("map");
+        Map<String, String> profiledMap = new HashMap<>();
+        ExecutorService executor11 = Executors.newFixedThreadPool(4);
+        IntStream.range(0, 10000)
+            .forEach(i -> executor11.submit(() -> {
+                profiledLock.lock();
+                try {
+                    count++;
+                } finally {
+                    profiledLock.unlock();
+                }
+                Lock mapLock = i % 100 == 0 ? profiledReadWriteLock.writeLock() : profiledReadWriteLock.readLock();
+                mapLock.lock();
+                try {
+                    if (i % 100 == 0) {
+                        profiledMap.put("foo", "bar" + i);
+                    } else {
+                        profiledMap.get("foo");
+                    }
+                } finally {
+                    mapLock.unlock();
+                }
+            }));
+        ConcurrentUtils.stop(executor11);
+        LockProfiler.snapshot().values().forEach(System.out::println);
     }
 
 }
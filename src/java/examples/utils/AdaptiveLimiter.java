@@ -0,0 +1,297 @@
+package examples.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class AdaptiveLimiter {
+    //A Semaphore(5) limits the concurrency to a number picked up front. If the downstream gets faster
+    //it's underused, if it gets slower 5 concurrent calls may already be too many.
+    //This limiter works out the limit from the latency it observes, like Netflix' concurrency-limits:
+    //every call takes a Permit and reports back how it went, the algorithm moves the limit from the samples.
+    //
+    //  AIMD:     add one while calls are fast, cut by a factor when a call is slower than a threshold or dropped
+    //  Gradient: compare the latency of each call with the long term average and shrink the limit
+    //            when latency goes up (requests start to queue downstream), grow it while latency is stable
+    //
+    //Callers that don't get a permit right away can wait in a bounded queue until a deadline
+    //instead of being rejected immediately.
+
+    public interface Algorithm {
+        //Returns the new limit after a call took rttNanos. Called under the limiter's lock,
+        //so an instance may keep state but must not be shared between limiters.
+        double update(double limit, long rttNanos, int inflight, boolean dropped);
+    }
+
+    //Additive increase, multiplicative decrease
+    public static class Aimd implements Algorithm {
+        private final int minLimit;
+        private final int maxLimit;
+        private final long timeoutNanos;
+        private final double backoffRatio;
+
+        public Aimd(int minLimit, int maxLimit, long timeout, TimeUnit unit, double backoffRatio) {
+            if (backoffRatio <= 0.0 || backoffRatio >= 1.0) {
+                throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+            }
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.timeoutNanos = unit.toNanos(timeout);
+            this.backoffRatio = backoffRatio;
+        }
+
+        @Override
+        public double update(double limit, long rttNanos, int inflight, boolean dropped) {
+            if (dropped || rttNanos > timeoutNanos) {
+                return Math.max(minLimit, Math.floor(limit * backoffRatio));
+            }
+            //only grow if the limit is actually used, otherwise a quiet period would push it up without bound
+            if (inflight * 2 >= limit) {
+                return Math.min(maxLimit, limit + 1);
+            }
+            return limit;
+        }
+    }
+
+    public static class Gradient implements Algorithm {
+        //the long term average follows the last ~LONG_WINDOW samples
+        private static final int LONG_WINDOW = 600;
+
+        private final int minLimit;
+        private final int maxLimit;
+        //latency may grow by this factor before the limit shrinks
+        private final double tolerance;
+        //how far the limit moves towards the new value on each sample
+        private final double smoothing;
+        private double longRtt;
+        private long samples;
+
+        public Gradient(int minLimit, int maxLimit, double tolerance, double smoothing) {
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.tolerance = tolerance;
+            this.smoothing = smoothing;
+        }
+
+        @Override
+        public double update(double limit, long rttNanos, int inflight, boolean dropped) {
+            if (dropped) {
+                return Math.max(minLimit, limit / 2);
+            }
+            rttNanos = Math.max(1L, rttNanos);
+            samples++;
+            //plain average while warming up, then an exponential one
+            longRtt += (rttNanos - longRtt) / Math.min(samples, LONG_WINDOW);
+            if (longRtt / rttNanos > 2.0) {
+                //latency dropped a lot (e.g. the downstream recovered), don't let the old average hold the limit down
+                longRtt = rttNanos;
+            }
+            if (inflight * 2 < limit) {
+                return limit;
+            }
+            //1.0 while latency is at the average, down to 0.5 when it's getting worse
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rttNanos));
+            //allow a small queue on top so the limit can still grow while the gradient is 1.0
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+            return Math.max(minLimit, Math.min(maxLimit, newLimit));
+        }
+    }
+
+    public static class Snapshot {
+        private final int limit;
+        private final int inflight;
+        private final int queued;
+        private final long rejected;
+        private final long minRttNanos;
+
+        Snapshot(int limit, int inflight, int queued, long rejected, long minRttNanos) {
+            this.limit = limit;
+            this.inflight = inflight;
+            this.queued = queued;
+            this.rejected = rejected;
+            this.minRttNanos = minRttNanos;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getInflight() {
+            return inflight;
+        }
+
+        public int getQueued() {
+            return queued;
+        }
+
+        //calls that didn't get a permit, because the queue was full or the deadline passed
+        public long getRejected() {
+            return rejected;
+        }
+
+        //lowest latency seen so far, 0 before the first sample
+        public long getMinRttNanos() {
+            return minRttNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot [limit=" + limit + ", inflight=" + inflight + ", queued=" + queued
+                    + ", rejected=" + rejected + ", minRtt=" + TimeUnit.NANOSECONDS.toMillis(minRttNanos) + "ms]";
+        }
+    }
+
+    //Handed out for every admitted call, exactly one of the on* methods has to be called when the call is done
+    public class Permit {
+        private final long start = System.nanoTime();
+        private boolean released;
+
+        //the call succeeded, its latency is a sample for the limit
+        public void onSuccess() {
+            release(System.nanoTime() - start, false, true);
+        }
+
+        //the call timed out or was rejected downstream, a sign of overload
+        public void onDropped() {
+            release(System.nanoTime() - start, true, true);
+        }
+
+        //the call failed for a reason unrelated to load (e.g. invalid input), don't take a sample
+        public void onIgnore() {
+            release(0L, false, false);
+        }
+
+        private void release(long rttNanos, boolean dropped, boolean sample) {
+            lock.lock();
+            try {
+                if (released) {
+                    throw new IllegalStateException("permit already released");
+                }
+                released = true;
+                inflight--;
+                if (sample) {
+                    int before = (int) limit;
+                    if (!dropped && (minRttNanos == 0L || rttNanos < minRttNanos)) {
+                        minRttNanos = rttNanos;
+                    }
+                    //inflight + 1: the call itself was still running when it was measured
+                    limit = algorithm.update(limit, rttNanos, inflight + 1, dropped);
+                    if ((int) limit > before) {
+                        permitAvailable.signalAll();
+                        return;
+                    }
+                }
+                permitAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public static final int DEFAULT_MAX_QUEUED = 100;
+
+    private final Algorithm algorithm;
+    private final int maxQueued;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+    //all guarded by lock
+    private double limit;
+    private int inflight;
+    private int queued;
+    private long rejected;
+    private long minRttNanos;
+
+    public AdaptiveLimiter(Algorithm algorithm, int initialLimit, int maxQueued) {
+        if (initialLimit < 1) {
+            throw new IllegalArgumentException("initialLimit must be at least 1");
+        }
+        this.algorithm = algorithm;
+        this.limit = initialLimit;
+        this.maxQueued = maxQueued;
+    }
+
+    //Cuts the limit by 10% whenever a call takes longer than timeout
+    public static AdaptiveLimiter aimd(int initialLimit, int maxLimit, long timeout, TimeUnit unit) {
+        return new AdaptiveLimiter(new Aimd(1, maxLimit, timeout, unit, 0.9), initialLimit, DEFAULT_MAX_QUEUED);
+    }
+
+    public static AdaptiveLimiter gradient(int initialLimit, int maxLimit) {
+        return new AdaptiveLimiter(new Gradient(1, maxLimit, 1.5, 0.2), initialLimit, DEFAULT_MAX_QUEUED);
+    }
+
+    //Returns a permit if the limit allows another call right now, otherwise null
+    public Permit tryAcquire() {
+        lock.lock();
+        try {
+            //don't overtake callers that are already waiting
+            if (queued == 0 && inflight < (int) limit) {
+                return admit();
+            }
+            rejected++;
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Waits in the queue for a permit until the timeout has passed, returns null if it didn't get one
+    //or if the queue is full
+    public Permit tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            if (queued == 0 && inflight < (int) limit) {
+                return admit();
+            }
+            if (queued >= maxQueued) {
+                rejected++;
+                return null;
+            }
+            queued++;
+            boolean admitted = false;
+            try {
+                while (inflight >= (int) limit) {
+                    if (nanos <= 0L) {
+                        rejected++;
+                        return null;
+                    }
+                    nanos = permitAvailable.awaitNanos(nanos);
+                }
+                admitted = true;
+                return admit();
+            } finally {
+                queued--;
+                if (!admitted && inflight < (int) limit) {
+                    //this thread may have been signalled just before it timed out or was interrupted, pass it on
+                    permitAvailable.signal();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Snapshot snapshot() {
+        lock.lock();
+        try {
+            return new Snapshot((int) limit, inflight, queued, rejected, minRttNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit admit() {
+        inflight++;
+        return new Permit();
+    }
+}
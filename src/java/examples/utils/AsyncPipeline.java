@@ -0,0 +1,205 @@
+package examples.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class AsyncPipeline implements Closeable {
+    //CompletableFuture.supplyAsync(...) without an executor runs on the ForkJoin common pool, which has
+    //one thread less than there are cores and is shared by every parallel stream in the JVM.
+    //A stage that blocks (sleep, JDBC, HTTP) holds one of those threads, a few of them and parallelStream()
+    //everywhere in the process slows down or stalls.
+    //
+    //AsyncPipeline builds supplyAsync -> thenApply -> exceptionally chains on two executors of its own:
+    //blocking stages go to an I/O executor (see BlockingIoExecutors), CPU stages to a compute pool
+    //with one thread per core. Every stage has a name; per name it counts the tasks waiting for a thread
+    //and records how long they waited and ran, see snapshot().
+    //
+    //  AsyncPipeline pipeline = AsyncPipeline.create(100);
+    //  pipeline.supplyBlocking("load", () -> load(id))
+    //          .thenApply("parse", this::parse)
+    //          .exceptionally(e -> fallback)
+    //          .toFuture();
+
+    public static class Snapshot {
+        private final String name;
+        private final int queued;
+        private final long completed;
+        private final LatencyHistogram waitTimes;
+        private final LatencyHistogram runTimes;
+
+        Snapshot(String name, int queued, long completed, LatencyHistogram waitTimes, LatencyHistogram runTimes) {
+            this.name = name;
+            this.queued = queued;
+            this.completed = completed;
+            this.waitTimes = waitTimes;
+            this.runTimes = runTimes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        //tasks of this stage waiting for a thread right now
+        public int getQueued() {
+            return queued;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        //time from submission to start, in nanoseconds
+        public LatencyHistogram getWaitTimes() {
+            return waitTimes;
+        }
+
+        //in nanoseconds
+        public LatencyHistogram getRunTimes() {
+            return runTimes;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": queued=" + queued + ", completed=" + completed
+                    + ", wait [" + waitTimes + "], run [" + runTimes + "]";
+        }
+    }
+
+    public class Stage<T> {
+        private final CompletableFuture<T> future;
+
+        Stage(CompletableFuture<T> future) {
+            this.future = future;
+        }
+
+        //CPU bound step, runs on the compute pool
+        public <R> Stage<R> thenApply(String name, Function<? super T, ? extends R> fn) {
+            return new Stage<>(future.thenApplyAsync(fn, stage(name).on(compute)));
+        }
+
+        //blocking step, runs on the I/O executor
+        public <R> Stage<R> thenApplyBlocking(String name, Function<? super T, ? extends R> fn) {
+            return new Stage<>(future.thenApplyAsync(fn, stage(name).on(io)));
+        }
+
+        public Stage<Void> thenAccept(String name, Consumer<? super T> action) {
+            return new Stage<>(future.thenAcceptAsync(action, stage(name).on(compute)));
+        }
+
+        //Runs on the thread that completed the failed stage, keep it cheap
+        public Stage<T> exceptionally(Function<Throwable, ? extends T> fn) {
+            return new Stage<>(future.exceptionally(fn));
+        }
+
+        public CompletableFuture<T> toFuture() {
+            return future;
+        }
+
+        public T join() {
+            return future.join();
+        }
+    }
+
+    private static class StageMetrics {
+        private final String name;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+        private final LatencyHistogram waitTimes = new LatencyHistogram();
+        private final LatencyHistogram runTimes = new LatencyHistogram();
+
+        StageMetrics(String name) {
+            this.name = name;
+        }
+
+        Executor on(Executor executor) {
+            return command -> {
+                long submitted = System.nanoTime();
+                queued.incrementAndGet();
+                try {
+                    executor.execute(() -> {
+                        queued.decrementAndGet();
+                        long start = System.nanoTime();
+                        waitTimes.record(start - submitted);
+                        try {
+                            command.run();
+                        } finally {
+                            runTimes.record(System.nanoTime() - start);
+                            completed.increment();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    queued.decrementAndGet();
+                    throw e;
+                }
+            };
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(name, queued.get(), completed.sum(), waitTimes.copy(), runTimes.copy());
+        }
+    }
+
+    private final ExecutorService io;
+    private final ExecutorService compute;
+    private final ConcurrentMap<String, StageMetrics> stages = new ConcurrentHashMap<>();
+
+    AsyncPipeline(ExecutorService io, ExecutorService compute) {
+        this.io = io;
+        this.compute = compute;
+    }
+
+    //At most ioConcurrency blocking stages run at the same time, CPU stages get one thread per core
+    public static AsyncPipeline create(int ioConcurrency) {
+        return create(ioConcurrency, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static AsyncPipeline create(int ioConcurrency, int computeThreads) {
+        ExecutorService io = BlockingIoExecutors.newExecutor(BlockingIoExecutors.Mode.AUTO, ioConcurrency);
+        ExecutorService compute = new ThreadPoolExecutor(computeThreads, computeThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("pipeline-compute-%d").setDaemon(true).build());
+        return new AsyncPipeline(io, compute);
+    }
+
+    public <T> Stage<T> supply(String name, Supplier<T> supplier) {
+        return new Stage<>(CompletableFuture.supplyAsync(supplier, stage(name).on(compute)));
+    }
+
+    public <T> Stage<T> supplyBlocking(String name, Supplier<T> supplier) {
+        return new Stage<>(CompletableFuture.supplyAsync(supplier, stage(name).on(io)));
+    }
+
+    //sorted by stage name
+    public Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> snapshots = new TreeMap<>();
+        stages.forEach((name, stage) -> snapshots.put(name, stage.snapshot()));
+        return snapshots;
+    }
+
+    //Waits for the running stages like ConcurrentUtils.stop()
+    @Override
+    public void close() {
+        ConcurrentUtils.stop(io);
+        ConcurrentUtils.stop(compute);
+    }
+
+    private StageMetrics stage(String name) {
+        return stages.computeIfAbsent(name, StageMetrics::new);
+    }
+}
@@ -0,0 +1,144 @@
+package examples.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class BlockingIoExecutors {
+    //Executors for tasks that mostly wait on blocking I/O.
+    //
+    //  PLATFORM: the large ThreadPoolExecutor of MainConcurrencyThreadsAndExecutors, one platform thread per
+    //            concurrent call. Every thread reserves its own stack (about 1 MB), so 1024 threads is already a lot.
+    //  VIRTUAL:  a virtual thread per task (JDK 21+). A blocked virtual thread only keeps its stack frames on
+    //            the heap, so 100k concurrent blocking calls are fine. A Semaphore caps how many run at once,
+    //            so the downstream (database, remote service) isn't flooded; the other tasks wait parked.
+    //
+    //The project is compiled for Java 17, so Executors.newVirtualThreadPerTaskExecutor() is looked up at runtime.
+    //On an older JDK VIRTUAL throws UnsupportedOperationException and AUTO falls back to PLATFORM.
+    //PLATFORM never starts more than MAX_PLATFORM_THREADS threads, tasks beyond that wait in the queue.
+
+    public enum Mode {
+        PLATFORM, VIRTUAL, AUTO
+    }
+
+    //the size of the large pool in MainConcurrencyThreadsAndExecutors
+    public static final int MAX_PLATFORM_THREADS = 1024;
+
+    private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+    public static boolean isVirtualThreadsAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    //At most maxConcurrency tasks run at the same time (MAX_PLATFORM_THREADS on platform threads), further tasks are queued
+    public static ExecutorService newExecutor(Mode mode, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        switch (mode) {
+            case PLATFORM:
+                return newPlatformExecutor(Math.min(maxConcurrency, MAX_PLATFORM_THREADS));
+            case VIRTUAL:
+                return newVirtualExecutor(maxConcurrency);
+            default:
+                return isVirtualThreadsAvailable() ? newVirtualExecutor(maxConcurrency)
+                        : newPlatformExecutor(Math.min(maxConcurrency, MAX_PLATFORM_THREADS));
+        }
+    }
+
+    //Same as the large pool in MainConcurrencyThreadsAndExecutors, but with an unbounded queue:
+    //like the virtual mode it queues what it can't run instead of rejecting it
+    public static ExecutorService newPlatformExecutor(int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    public static ExecutorService newVirtualExecutor(int maxConcurrency) {
+        if (!isVirtualThreadsAvailable()) {
+            throw new UnsupportedOperationException("virtual threads need JDK 21 or newer, running on " + Runtime.version());
+        }
+        ExecutorService executor;
+        try {
+            executor = (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("could not create virtual thread executor", e);
+        }
+        return new ConcurrencyLimitedExecutor(executor, maxConcurrency);
+    }
+
+    private static MethodHandle findVirtualThreadPerTaskExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    //Every task gets its thread right away and waits for a permit on that thread.
+    //Only makes sense for virtual threads: a waiting virtual thread is cheap, a waiting pool thread is not.
+    static class ConcurrencyLimitedExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+
+        ConcurrencyLimitedExecutor(ExecutorService delegate, int maxConcurrency) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(maxConcurrency);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    //shutdownNow() while the task was waiting, it never started.
+                    //Cancel it, so the future of submit() doesn't stay incomplete forever
+                    if (command instanceof Future) {
+                        ((Future<?>) command).cancel(false);
+                    }
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
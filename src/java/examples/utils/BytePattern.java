@@ -0,0 +1,116 @@
+package examples.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class BytePattern {
+    //Boyer-Moore-Horspool search for a fixed byte sequence.
+    //Compares the last byte of the pattern first and on a mismatch skips ahead by up to the pattern length,
+    //so the bytes in between are never looked at. For UTF-8 a byte match is the same as String.contains(),
+    //since the encoding of a character never shows up in the middle of another character's encoding.
+    //The same holds for single byte charsets (ISO-8859-1, US-ASCII), but not for multi byte ones like
+    //Shift_JIS, where an ASCII byte can be the second half of a two byte character.
+
+    private final byte[] pattern;
+    private final int[] shift = new int[256];
+
+    private BytePattern(byte[] pattern) {
+        if (pattern.length == 0) {
+            throw new IllegalArgumentException("pattern must not be empty");
+        }
+        this.pattern = pattern.clone();
+        int last = pattern.length - 1;
+        Arrays.fill(shift, pattern.length);
+        for (int i = 0; i < last; i++) {
+            shift[pattern[i] & 0xff] = last - i;
+        }
+    }
+
+    public static BytePattern of(byte[] pattern) {
+        return new BytePattern(pattern);
+    }
+
+    public static BytePattern of(String pattern) {
+        return of(pattern, StandardCharsets.UTF_8);
+    }
+
+    //Unlike String.getBytes() chars the charset can't encode aren't replaced by '?', they're rejected
+    public static BytePattern of(String pattern, Charset charset) {
+        try {
+            ByteBuffer encoded = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .encode(CharBuffer.wrap(pattern));
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            return new BytePattern(bytes);
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("pattern can't be encoded in " + charset, e);
+        }
+    }
+
+    public int length() {
+        return pattern.length;
+    }
+
+    public boolean contains(byte b) {
+        for (byte p : pattern) {
+            if (p == b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Returns the index of the first match in [from, to) or -1
+    public int indexOf(ByteBuffer haystack, int from, int to) {
+        int last = pattern.length - 1;
+        byte lastByte = pattern[last];
+        int i = from;
+        while (i <= to - pattern.length) {
+            byte b = haystack.get(i + last);
+            if (b == lastByte && matchesAt(haystack, i)) {
+                return i;
+            }
+            i += shift[b & 0xff];
+        }
+        return -1;
+    }
+
+    public int indexOf(byte[] haystack, int from, int to) {
+        int last = pattern.length - 1;
+        byte lastByte = pattern[last];
+        int i = from;
+        while (i <= to - pattern.length) {
+            byte b = haystack[i + last];
+            if (b == lastByte && matchesAt(haystack, i)) {
+                return i;
+            }
+            i += shift[b & 0xff];
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(ByteBuffer haystack, int at) {
+        for (int j = pattern.length - 2; j >= 0; j--) {
+            if (haystack.get(at + j) != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesAt(byte[] haystack, int at) {
+        for (int j = pattern.length - 2; j >= 0; j--) {
+            if (haystack[at + j] != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,156 @@
+package examples.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+public class ConcurrentCollectors {
+    //Collectors for parallel streams that don't need their results in encounter order.
+    //Collectors.groupingBy() and toMap() give every fork/join leaf its own HashMap and merge the maps pairwise
+    //on the way up, so entries get copied again and again. These are CONCURRENT and UNORDERED: all threads
+    //accumulate into one ConcurrentHashMap and nothing is merged.
+    //
+    //Collectors.groupingByConcurrent() does that as well, but with a plain downstream collector it synchronizes
+    //on the downstream container of the key, so all threads adding to a popular key queue up on one monitor.
+    //Here the downstream containers of a key are striped: every thread adds to the stripe picked by its
+    //thread id, and the stripes are combined once in the finisher.
+    //
+    //With a sequential stream they work like the normal collectors, just with the overhead of the concurrent map.
+
+    private static final int STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    //One downstream container per stripe, created when a thread of that stripe first sees the key
+    private static class Striped<A> {
+        private final AtomicReferenceArray<Stripe<A>> stripes = new AtomicReferenceArray<>(STRIPES);
+
+        Stripe<A> stripe(Collector<?, A, ?> downstream) {
+            int index = (int) Thread.currentThread().getId() & (STRIPES - 1);
+            Stripe<A> stripe = stripes.get(index);
+            if (stripe == null) {
+                stripes.compareAndSet(index, null, new Stripe<>(downstream.supplier().get()));
+                stripe = stripes.get(index);
+            }
+            return stripe;
+        }
+
+        //for the combiner, when this isn't used as a concurrent collector (e.g. as a downstream collector)
+        Striped<A> merge(Striped<A> other, Collector<?, A, ?> downstream) {
+            for (int i = 0; i < STRIPES; i++) {
+                Stripe<A> stripe = stripes.get(i);
+                Stripe<A> otherStripe = other.stripes.get(i);
+                if (stripe == null) {
+                    stripes.set(i, otherStripe);
+                } else if (otherStripe != null) {
+                    stripe.container = downstream.combiner().apply(stripe.container, otherStripe.container);
+                }
+            }
+            return this;
+        }
+
+        A combine(Collector<?, A, ?> downstream) {
+            A result = null;
+            for (int i = 0; i < STRIPES; i++) {
+                Stripe<A> stripe = stripes.get(i);
+                if (stripe != null) {
+                    result = result == null ? stripe.container : downstream.combiner().apply(result, stripe.container);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static class Stripe<A> {
+        private A container;
+
+        Stripe(A container) {
+            this.container = container;
+        }
+    }
+
+    public static <T, K> Collector<T, ?, Map<K, List<T>>> groupingBy(Function<? super T, ? extends K> classifier) {
+        return groupingBy(classifier, Collectors.toList());
+    }
+
+    //The downstream collector doesn't need to be thread safe, each of its containers is only used under a lock,
+    //and only the threads that share a stripe compete for it
+    public static <T, K, A, D> Collector<T, ?, Map<K, D>> groupingBy(Function<? super T, ? extends K> classifier,
+            Collector<? super T, A, D> downstream) {
+        BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+        return Collector.<T, ConcurrentMap<K, Striped<A>>, Map<K, D>>of(
+                ConcurrentHashMap::new,
+                (map, element) -> {
+                    K key = classifier.apply(element);
+                    Striped<A> striped = map.get(key);
+                    if (striped == null) {
+                        striped = map.computeIfAbsent(key, k -> new Striped<>());
+                    }
+                    Stripe<A> stripe = striped.stripe(downstream);
+                    synchronized (stripe) {
+                        accumulator.accept(stripe.container, element);
+                    }
+                },
+                (left, right) -> {
+                    //only called when the collector isn't used concurrently
+                    right.forEach((key, striped) -> left.merge(key, striped, (a, b) -> a.merge(b, downstream)));
+                    return left;
+                },
+                map -> {
+                    Map<K, D> result = new HashMap<>(Math.max(16, (int) (map.size() / 0.75f) + 1));
+                    map.forEach((key, striped) -> result.put(key, downstream.finisher().apply(striped.combine(downstream))));
+                    return result;
+                },
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    //Number of elements per key, a LongAdder per key instead of boxed counts
+    public static <T, K> Collector<T, ?, Map<K, Long>> counting(Function<? super T, ? extends K> classifier) {
+        return Collector.<T, ConcurrentMap<K, LongAdder>, Map<K, Long>>of(
+                ConcurrentHashMap::new,
+                (map, element) -> {
+                    K key = classifier.apply(element);
+                    LongAdder count = map.get(key);
+                    if (count == null) {
+                        count = map.computeIfAbsent(key, k -> new LongAdder());
+                    }
+                    count.increment();
+                },
+                (left, right) -> {
+                    right.forEach((key, count) -> left.merge(key, count, (a, b) -> {
+                        a.add(b.sum());
+                        return a;
+                    }));
+                    return left;
+                },
+                map -> {
+                    Map<K, Long> result = new HashMap<>(Math.max(16, (int) (map.size() / 0.75f) + 1));
+                    map.forEach((key, count) -> result.put(key, count.sum()));
+                    return result;
+                },
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    //Like Collectors.toMap(keyMapper, valueMapper, merge), values of the same key are merged with the merge
+    //function in no particular order, so it should be commutative (sum, max, concatenation if order doesn't matter).
+    //The result is the ConcurrentHashMap itself.
+    public static <T, K, V> Collector<T, ?, ConcurrentMap<K, V>> toMap(Function<? super T, ? extends K> keyMapper,
+            Function<? super T, ? extends V> valueMapper, BinaryOperator<V> merge) {
+        return Collector.<T, ConcurrentMap<K, V>>of(
+                ConcurrentHashMap::new,
+                (map, element) -> map.merge(keyMapper.apply(element), valueMapper.apply(element), merge),
+                (left, right) -> {
+                    right.forEach((key, value) -> left.merge(key, value, merge));
+                    return left;
+                },
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+}
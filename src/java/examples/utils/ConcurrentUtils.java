@@ -1,23 +1,90 @@
 package examples.utils;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 public class ConcurrentUtils {
     
+    //Result of stopAll(): which executors had to be forced down, the tasks that never started
+    //and how many were interrupted while running
+    public static class ShutdownReport {
+        private final Map<ExecutorService, List<Runnable>> drained;
+        private final Map<ExecutorService, Integer> interruptedRunning;
+        private final List<ExecutorService> notTerminated;
+        private final boolean interrupted;
+
+        ShutdownReport(Map<ExecutorService, List<Runnable>> drained, Map<ExecutorService, Integer> interruptedRunning,
+                List<ExecutorService> notTerminated, boolean interrupted) {
+            this.drained = Collections.unmodifiableMap(drained);
+            this.interruptedRunning = Collections.unmodifiableMap(interruptedRunning);
+            this.notTerminated = Collections.unmodifiableList(notTerminated);
+            this.interrupted = interrupted;
+        }
+
+        //true if every executor finished its tasks before the deadline
+        public boolean isClean() {
+            return drained.isEmpty() && notTerminated.isEmpty() && !interrupted;
+        }
+
+        //Tasks that were still queued when shutdownNow() was called, by executor. They never ran and can be
+        //submitted again elsewhere. Only executors that had to be forced down are in the map.
+        public Map<ExecutorService, List<Runnable>> getDrained() {
+            return drained;
+        }
+
+        public List<Runnable> getDrainedTasks() {
+            List<Runnable> tasks = new ArrayList<>();
+            drained.values().forEach(tasks::addAll);
+            return tasks;
+        }
+
+        //Tasks that were still running when shutdownNow() interrupted them, by executor. An ExecutorService
+        //doesn't hand out its running tasks, so this is their number: the active threads of a ThreadPoolExecutor
+        //or ForkJoinPool at that moment, -1 for other executors. Only executors that had to be forced down are in the map.
+        public Map<ExecutorService, Integer> getInterruptedRunning() {
+            return interruptedRunning;
+        }
+
+        //Executors with tasks still running after they were interrupted, e.g. tasks that ignore interrupts
+        public List<ExecutorService> getNotTerminated() {
+            return notTerminated;
+        }
+
+        //the waiting thread was interrupted, the interrupt status has been restored
+        public boolean isInterrupted() {
+            return interrupted;
+        }
+
+        @Override
+        public String toString() {
+            return "ShutdownReport [forced=" + drained.size() + ", drainedTasks=" + getDrainedTasks().size()
+                    + ", interruptedRunning=" + interruptedRunning.values() + ", notTerminated=" + notTerminated.size() + ", interrupted=" + interrupted + "]";
+        }
+    }
+
     public static void stop(ExecutorService executor) {
         //An ExecutorService provides two methods to stop: 
         //1)shutdown() waits for currently running tasks to finish 
         //2)shutdownNow() interrupts all running tasks and shut the executor down immediately
 
         //shutdown softly by waiting a certain amount of time
-        //after 5 seconds fore shut down all the treads
+        //after 60 seconds force shut down all the threads
         try {
             executor.shutdown();
             executor.awaitTermination(60, TimeUnit.SECONDS);
         }
         catch (InterruptedException e) {
             System.err.println("termination interrupted");
+            //keep the interrupt for the caller
+            Thread.currentThread().interrupt();
         } finally {
             if (!executor.isTerminated()) {
                 System.err.println("killing non-finished tasks");
@@ -25,6 +92,62 @@ public class ConcurrentUtils {
             executor.shutdownNow();
         } 
     } 
+
+    //Stops all executors within one overall timeout instead of waiting for one after the other:
+    //all of them are shut down first, so their tasks finish at the same time. Executors that aren't done
+    //after 90% of the timeout are stopped with shutdownNow(), the rest of the time is for their tasks
+    //to react to the interrupt.
+    //If the calling thread is interrupted, everything left is stopped right away and the interrupt status
+    //is restored for the caller.
+    public static ShutdownReport stopAll(Duration timeout, ExecutorService... executors) {
+        long now = System.nanoTime();
+        long deadline = now + timeout.toNanos();
+        long forceAt = deadline - timeout.toNanos() / 10;
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+        boolean interrupted = false;
+        try {
+            for (ExecutorService executor : executors) {
+                executor.awaitTermination(forceAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        Map<ExecutorService, List<Runnable>> drained = new IdentityHashMap<>();
+        Map<ExecutorService, Integer> interruptedRunning = new IdentityHashMap<>();
+        for (ExecutorService executor : executors) {
+            if (!executor.isTerminated()) {
+                interruptedRunning.put(executor, runningTasks(executor));
+                drained.put(executor, executor.shutdownNow());
+            }
+        }
+        List<ExecutorService> notTerminated = new ArrayList<>();
+        for (ExecutorService executor : drained.keySet()) {
+            try {
+                if (interrupted || !executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    notTerminated.add(executor);
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+                notTerminated.add(executor);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return new ShutdownReport(drained, interruptedRunning, notTerminated, interrupted);
+    }
+
+    private static int runningTasks(ExecutorService executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getActiveCount();
+        }
+        if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getActiveThreadCount();
+        }
+        return -1;
+    }
     
     public static void sleep(int seconds) {
         try {
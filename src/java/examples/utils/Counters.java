@@ -0,0 +1,33 @@
+package examples.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public class Counters {
+    //Registry of named StripedCounters, so the hot path just keeps a reference to its counter
+    //and reporting code can take a snapshot of all of them at once.
+    //Look the counter up once and keep it in a field, counter(name) is a map lookup.
+
+    private static final ConcurrentMap<String, StripedCounter> COUNTERS = new ConcurrentHashMap<>();
+
+    public static StripedCounter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new StripedCounter());
+    }
+
+    //sorted by name
+    public static Map<String, StripedCounter.Snapshot> snapshot() {
+        Map<String, StripedCounter.Snapshot> snapshots = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> snapshots.put(name, counter.snapshot()));
+        return snapshots;
+    }
+
+    public static void reset() {
+        COUNTERS.values().forEach(StripedCounter::reset);
+    }
+
+    public static void remove(String name) {
+        COUNTERS.remove(name);
+    }
+}
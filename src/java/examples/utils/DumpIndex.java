@@ -0,0 +1,244 @@
+package examples.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class DumpIndex {
+    //Length prefixed records can only be found by reading the file from the start, which means a dump
+    //can't be split for parallel streams. The index stores the offset of every record in a sidecar file
+    //(<dump>.idx) so record ranges can be handed to different threads, and reopening the dump skips the scan.
+    //
+    //Sidecar layout: [int magic][long dump size][long dump mtime][long record count][long offset]*
+
+    static final int MAGIC = 0x44494458; // "DIDX"
+    static final int HEADER_BYTES = Integer.BYTES + 3 * Long.BYTES;
+
+    //offsets are mapped in segments since a single mapping can't exceed 2 GB
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_LONGS = 1L << SEGMENT_SHIFT;
+
+    //below this many records a range isn't split any further
+    private static final long MIN_SPLIT_RECORDS = 1024;
+
+    private final Path dump;
+    private final long recordCount;
+    private final LongBuffer[] segments;
+
+    private DumpIndex(Path dump, long recordCount, LongBuffer[] segments) {
+        this.dump = dump;
+        this.recordCount = recordCount;
+        this.segments = segments;
+    }
+
+    public static Path indexPath(Path dump) {
+        return dump.resolveSibling(dump.getFileName() + ".idx");
+    }
+
+    //Loads the sidecar index if it's still up to date with the dump, otherwise builds it first
+    public static DumpIndex open(Path dump) throws IOException {
+        DumpIndex index = load(dump);
+        return index != null ? index : build(dump);
+    }
+
+    //Scans the dump once and writes the sidecar index next to it
+    public static DumpIndex build(Path dump) throws IOException {
+        Path indexPath = indexPath(dump);
+        Path tmp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        long dumpSize = Files.size(dump);
+        long dumpModified = Files.getLastModifiedTime(dump).toMillis();
+
+        try {
+            long count = 0;
+            try (DumpReader reader = DumpReader.open(dump);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeLong(dumpSize);
+                out.writeLong(dumpModified);
+                //the record count is patched in once the scan is done
+                out.writeLong(0L);
+                long offset = reader.position();
+                while (reader.next() != null) {
+                    out.writeLong(offset);
+                    offset = reader.position();
+                    count++;
+                }
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer countBytes = ByteBuffer.allocate(Long.BYTES).putLong(0, count);
+                channel.write(countBytes, Integer.BYTES + 2 * Long.BYTES);
+            }
+            //readers never see a half written index
+            Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            //don't leave a half written index next to the dump
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        DumpIndex index = load(dump);
+        if (index == null) {
+            throw new IOException("Dump file " + dump + " changed while it was being indexed");
+        }
+        return index;
+    }
+
+    //Returns null if there is no index or it's stale
+    static DumpIndex load(Path dump) throws IOException {
+        Path indexPath = indexPath(dump);
+        if (!Files.exists(indexPath)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return null;
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC
+                    || header.getLong() != Files.size(dump)
+                    || header.getLong() != Files.getLastModifiedTime(dump).toMillis()) {
+                return null;
+            }
+            long count = header.getLong();
+            if (channel.size() != HEADER_BYTES + count * Long.BYTES) {
+                return null;
+            }
+            int segmentCount = (int) ((count + SEGMENT_LONGS - 1) >>> SEGMENT_SHIFT);
+            LongBuffer[] segments = new LongBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long first = (long) i << SEGMENT_SHIFT;
+                long longs = Math.min(SEGMENT_LONGS, count - first);
+                segments[i] = channel
+                        .map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * Long.BYTES, longs * Long.BYTES)
+                        .asLongBuffer();
+            }
+            return new DumpIndex(dump, count, segments);
+        }
+    }
+
+    public long recordCount() {
+        return recordCount;
+    }
+
+    public long offset(long record) {
+        return segments[(int) (record >>> SEGMENT_SHIFT)].get((int) (record & (SEGMENT_LONGS - 1)));
+    }
+
+    //Splittable stream over all records of the dump. Use it in a try-with-resources block to release the file.
+    public Stream<ByteBuffer> stream(boolean parallel) throws IOException {
+        FileChannel channel = FileChannel.open(dump, StandardOpenOption.READ);
+        return StreamSupport.stream(new IndexedSpliterator(channel, 0, recordCount), parallel)
+                .onClose(() -> {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    //Parallel stream over the records of several dumps, indexing the ones that don't have an up to date index
+    public static Stream<ByteBuffer> parallelStream(Path... dumps) throws IOException {
+        Stream<ByteBuffer> result = Stream.empty();
+        try {
+            for (Path dump : dumps) {
+                Stream<ByteBuffer> next = open(dump).stream(true);
+                //concat keeps the parts splittable and closes both streams
+                result = Stream.concat(result, next);
+            }
+        } catch (IOException | RuntimeException e) {
+            result.close();
+            throw e;
+        }
+        return result.parallel();
+    }
+
+    private class IndexedSpliterator implements Spliterator<ByteBuffer> {
+        private final FileChannel channel;
+        private long from;
+        private final long to;
+        //created on first use so splits that are handed to other threads don't map anything up front
+        private DumpReader reader;
+
+        IndexedSpliterator(FileChannel channel, long from, long to) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ByteBuffer> action) {
+            if (from >= to) {
+                return false;
+            }
+            action.accept(read(from++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super ByteBuffer> action) {
+            while (from < to) {
+                action.accept(read(from++));
+            }
+        }
+
+        private ByteBuffer read(long record) {
+            try {
+                if (reader == null) {
+                    //map just the byte range of this split, DumpReader grows the window for large records
+                    long start = offset(record);
+                    long end = to < recordCount ? offset(to) : channel.size();
+                    long windowSize = Math.max(DumpReader.HEADER_BYTES + 1L, Math.min(end - start, DumpReader.DEFAULT_WINDOW_SIZE));
+                    reader = new DumpReader(channel, windowSize);
+                }
+                ByteBuffer buffer = reader.recordAt(offset(record));
+                if (buffer == null) {
+                    throw new IOException("Dump file " + dump + " is shorter than its index");
+                }
+                return buffer;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Spliterator<ByteBuffer> trySplit() {
+            long remaining = to - from;
+            if (remaining < 2 * MIN_SPLIT_RECORDS) {
+                return null;
+            }
+            long mid = from + remaining / 2;
+            IndexedSpliterator prefix = new IndexedSpliterator(channel, from, mid);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package examples.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class DumpReader implements Closeable {
+    //Reads the [int length][payload] dump format by memory mapping the file instead of copying
+    //every payload into a new byte[]. Each record is returned as a read-only slice of the mapping,
+    //so the only per-record allocation is the small ByteBuffer view object.
+
+    static final int HEADER_BYTES = Integer.BYTES;
+
+    //A single mapping is limited to Integer.MAX_VALUE bytes, so larger files are mapped in windows.
+    //The window moves forward whenever the next record doesn't fit into the current one.
+    public static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    DumpReader(FileChannel channel, long windowSize) throws IOException {
+        if (windowSize <= HEADER_BYTES || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("windowSize must be in (" + HEADER_BYTES + ", " + Integer.MAX_VALUE + "]");
+        }
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    public static DumpReader open(Path path) throws IOException {
+        return open(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    public static DumpReader open(Path path, long windowSize) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new DumpReader(channel, windowSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    //Lazily streams the records of all files in order. A file is only opened once the previous one is exhausted
+    //and it's closed as soon as its last record has been handed out, or when the stream is closed.
+    //Use the stream in a try-with-resources block same as Files.lines().
+    public static Stream<ByteBuffer> stream(Path... paths) {
+        RecordSpliterator spliterator = new RecordSpliterator(paths);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(spliterator::close);
+    }
+
+    //Returns the next record or null once the end of the file has been reached.
+    //Same as DataInputStream based reading, a truncated record at the end of the file is treated as end of file.
+    public ByteBuffer next() throws IOException {
+        ByteBuffer record = recordAt(position);
+        if (record != null) {
+            position += HEADER_BYTES + record.remaining();
+        }
+        return record;
+    }
+
+    //Offset of the next record in the file
+    public long position() {
+        return position;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    ByteBuffer recordAt(long offset) throws IOException {
+        if (offset + HEADER_BYTES > size) {
+            return null;
+        }
+        ensureMapped(offset, HEADER_BYTES);
+        int length = window.getInt((int) (offset - windowStart));
+        if (length < 0) {
+            throw new IOException("Corrupt record length " + length + " at offset " + offset);
+        }
+        long recordBytes = HEADER_BYTES + (long) length;
+        if (offset + recordBytes > size) {
+            return null;
+        }
+        ensureMapped(offset, recordBytes);
+        int from = (int) (offset - windowStart) + HEADER_BYTES;
+        return window.slice(from, length).asReadOnlyBuffer();
+    }
+
+    private void ensureMapped(long offset, long length) throws IOException {
+        if (window != null && offset >= windowStart && offset + length <= windowStart + window.capacity()) {
+            return;
+        }
+        long mapSize = Math.min(Math.max(windowSize, length), size - offset);
+        if (mapSize > Integer.MAX_VALUE) {
+            throw new IOException("Record of " + length + " bytes at offset " + offset + " is too large to map");
+        }
+        //Slices handed out from the previous window stay valid, the old mapping is released once they're unreachable
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, mapSize);
+        windowStart = offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        //Closing the channel doesn't invalidate the mapping, returned slices can still be read
+        window = null;
+        channel.close();
+    }
+
+    private static class RecordSpliterator extends Spliterators.AbstractSpliterator<ByteBuffer> {
+        private final Path[] paths;
+        private int nextPath;
+        private DumpReader reader;
+
+        RecordSpliterator(Path[] paths) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+            this.paths = paths.clone();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ByteBuffer> action) {
+            try {
+                while (true) {
+                    if (reader == null) {
+                        if (nextPath == paths.length) {
+                            return false;
+                        }
+                        reader = open(paths[nextPath++]);
+                    }
+                    ByteBuffer record = reader.next();
+                    if (record != null) {
+                        action.accept(record);
+                        return true;
+                    }
+                    //end of this file, move on to the next one
+                    closeReader();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void closeReader() throws IOException {
+            if (reader != null) {
+                DumpReader current = reader;
+                reader = null;
+                current.close();
+            }
+        }
+
+        void close() {
+            nextPath = paths.length;
+            try {
+                closeReader();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
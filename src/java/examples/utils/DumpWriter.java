@@ -0,0 +1,180 @@
+package examples.utils;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class DumpWriter implements Closeable, Flushable {
+    //Writes the [int length][payload] format read by MainFileIO.readDumps and DumpReader.
+    //Records are copied into pooled direct buffers and only written out once flushSize bytes are pending,
+    //using a single gathering FileChannel.write(ByteBuffer[]) call. So producers don't pay a syscall per record.
+    //The writer is thread safe, concurrent producers are serialized on the writer.
+
+    public enum FsyncPolicy {
+        //leave it to the OS when the data hits the disk
+        NEVER,
+        //force the data to disk after every flush
+        ON_FLUSH,
+        //force the data to disk once when the writer is closed
+        ON_CLOSE
+    }
+
+    public static final int DEFAULT_FLUSH_SIZE = 256 * 1024;
+
+    static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_CHUNKS = 64;
+    //Direct buffers are expensive to allocate and are only released by the GC, so they're shared by all writers
+    private static final BlockingQueue<ByteBuffer> POOL = new ArrayBlockingQueue<>(MAX_POOLED_CHUNKS);
+
+    private final FileChannel channel;
+    private final int flushSize;
+    private final FsyncPolicy fsyncPolicy;
+
+    private final List<ByteBuffer> pending = new ArrayList<>();
+    private final ByteBuffer header = ByteBuffer.allocateDirect(DumpReader.HEADER_BYTES);
+    private ByteBuffer current;
+    private long pendingBytes;
+    private boolean closed;
+
+    DumpWriter(FileChannel channel, int flushSize, FsyncPolicy fsyncPolicy) {
+        checkFlushSize(flushSize);
+        this.channel = channel;
+        this.flushSize = flushSize;
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    public static DumpWriter open(Path path) throws IOException {
+        return open(path, DEFAULT_FLUSH_SIZE, FsyncPolicy.NEVER, false);
+    }
+
+    public static DumpWriter open(Path path, int flushSize, FsyncPolicy fsyncPolicy, boolean append) throws IOException {
+        //before opening, TRUNCATE_EXISTING would already have emptied the file
+        checkFlushSize(flushSize);
+        FileChannel channel = append
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new DumpWriter(channel, flushSize, fsyncPolicy);
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void checkFlushSize(int flushSize) {
+        if (flushSize <= 0) {
+            throw new IllegalArgumentException("flushSize must be positive");
+        }
+    }
+
+    public void write(byte[] payload) throws IOException {
+        write(ByteBuffer.wrap(payload));
+    }
+
+    //Writes the remaining bytes of the payload as one record, the payload buffer itself is left untouched
+    public synchronized void write(ByteBuffer payload) throws IOException {
+        if (closed) {
+            throw new IOException("DumpWriter is closed");
+        }
+        int length = payload.remaining();
+        int recordBytes = DumpReader.HEADER_BYTES + length;
+        if (recordBytes > CHUNK_SIZE) {
+            //too large to pool, write whatever is pending and then the record straight from the caller's buffer
+            flushPending();
+            header.clear();
+            header.putInt(length).flip();
+            writeFully(new ByteBuffer[]{header, payload.duplicate()});
+            afterFlush();
+            return;
+        }
+        if (current == null || current.remaining() < recordBytes) {
+            current = acquire();
+            pending.add(current);
+        }
+        current.putInt(length);
+        current.put(payload.duplicate());
+        pendingBytes += recordBytes;
+        if (pendingBytes >= flushSize) {
+            flushPending();
+            afterFlush();
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        flushPending();
+        afterFlush();
+    }
+
+    private void flushPending() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] buffers = pending.toArray(new ByteBuffer[0]);
+        for (ByteBuffer buffer : buffers) {
+            buffer.flip();
+        }
+        try {
+            writeFully(buffers);
+        } finally {
+            for (ByteBuffer buffer : buffers) {
+                release(buffer);
+            }
+            pending.clear();
+            current = null;
+            pendingBytes = 0;
+        }
+    }
+
+    private void writeFully(ByteBuffer[] buffers) throws IOException {
+        //a gathering write may write less than asked for, so keep going until everything is out
+        int first = 0;
+        while (first < buffers.length) {
+            channel.write(buffers, first, buffers.length - first);
+            while (first < buffers.length && !buffers[first].hasRemaining()) {
+                first++;
+            }
+        }
+    }
+
+    private void afterFlush() throws IOException {
+        if (fsyncPolicy == FsyncPolicy.ON_FLUSH) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flushPending();
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                channel.force(false);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static ByteBuffer acquire() {
+        ByteBuffer buffer = POOL.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(CHUNK_SIZE);
+    }
+
+    private static void release(ByteBuffer buffer) {
+        buffer.clear();
+        //if the pool is full the buffer is simply left to the GC
+        POOL.offer(buffer);
+    }
+}
@@ -0,0 +1,250 @@
+package examples.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class FileRewrite {
+    //Rewriting a file with Files.readAllLines() + Files.write() holds the whole file on the heap,
+    //even if only one line is appended. This streams the source through the line transforms with a fixed
+    //size buffer. Runs of unchanged lines are not copied through the heap at all but with FileChannel.transferTo,
+    //which the OS can do without copying into user space.
+    //The result goes to a temp file next to the target which is then renamed, so readers of the target
+    //see either the old or the new content. The target may be the source itself.
+    //The temp file gets the POSIX permissions of the target (of the source for a new target),
+    //otherwise the rename would leave the rewritten file with the 0600 of Files.createTempFile().
+    //
+    //Unchanged lines keep their original bytes and line terminators, new and changed lines are terminated
+    //with the terminator of the line they replace, appended lines with System.lineSeparator().
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path source;
+    private final Charset charset;
+    private final List<UnaryOperator<String>> transforms = new ArrayList<>();
+    private final List<String> prepended = new ArrayList<>();
+    private final List<String> appended = new ArrayList<>();
+
+    private FileRewrite(Path source, Charset charset) {
+        this.source = source;
+        this.charset = charset;
+    }
+
+    public static FileRewrite of(Path source) {
+        return of(source, StandardCharsets.UTF_8);
+    }
+
+    public static FileRewrite of(Path source, Charset charset) {
+        return new FileRewrite(source, charset);
+    }
+
+    //The transform returns the same String to keep a line, another String to replace it or null to drop it
+    public FileRewrite mapLines(UnaryOperator<String> transform) {
+        transforms.add(transform);
+        return this;
+    }
+
+    public FileRewrite prepend(String... lines) {
+        prepended.addAll(Arrays.asList(lines));
+        return this;
+    }
+
+    public FileRewrite append(String... lines) {
+        appended.addAll(Arrays.asList(lines));
+        return this;
+    }
+
+    public void writeTo(Path target) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            copyPermissions(Files.exists(target) ? target : source, tmp);
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                Output output = new Output(in, out);
+                for (String line : prepended) {
+                    output.write(line + System.lineSeparator());
+                }
+                if (transforms.isEmpty()) {
+                    output.copy(0, in.size());
+                } else {
+                    rewriteLines(in, output);
+                }
+                if (!appended.isEmpty() && endsWithoutTerminator(in)) {
+                    output.write(System.lineSeparator());
+                }
+                for (String line : appended) {
+                    output.write(line + System.lineSeparator());
+                }
+                output.flush();
+                out.force(false);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        if (Files.getFileAttributeView(to, PosixFileAttributeView.class) != null) {
+            Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+        }
+    }
+
+    private void rewriteLines(FileChannel in, Output output) throws IOException {
+        //Line terminators are \n, \r and \r\n like BufferedReader.readLine()
+        LineState state = new LineState(output);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = 0;
+        while (in.read(buffer, position) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (state.afterCarriageReturn) {
+                    state.afterCarriageReturn = false;
+                    if (b == '\n') {
+                        state.completeLine(position + 1, "\r\n");
+                        position++;
+                        continue;
+                    }
+                    state.completeLine(position, "\r");
+                }
+                if (b == '\n') {
+                    state.completeLine(position + 1, "\n");
+                } else if (b == '\r') {
+                    state.afterCarriageReturn = true;
+                } else {
+                    state.append(b);
+                }
+                position++;
+            }
+            buffer.clear();
+        }
+        if (state.afterCarriageReturn) {
+            state.completeLine(position, "\r");
+        } else if (state.length > 0) {
+            state.completeLine(position, "");
+        }
+        state.flushUnchanged();
+    }
+
+    private boolean endsWithoutTerminator(FileChannel in) throws IOException {
+        long size = in.size();
+        if (size == 0) {
+            return false;
+        }
+        ByteBuffer last = ByteBuffer.allocate(1);
+        in.read(last, size - 1);
+        byte b = last.get(0);
+        return b != '\n' && b != '\r';
+    }
+
+    private class LineState {
+        private final Output output;
+        private byte[] bytes = new byte[256];
+        private int length;
+        private boolean afterCarriageReturn;
+        //start of the line being read and of the run of unchanged lines before it
+        private long lineStart;
+        private long unchangedStart;
+
+        LineState(Output output) {
+            this.output = output;
+        }
+
+        void append(byte b) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = b;
+        }
+
+        void completeLine(long end, String terminator) throws IOException {
+            String line = new String(bytes, 0, length, charset);
+            String result = line;
+            for (UnaryOperator<String> transform : transforms) {
+                result = transform.apply(result);
+                if (result == null) {
+                    break;
+                }
+            }
+            if (result != line) {
+                flushUnchanged();
+                if (result != null) {
+                    output.write(result + terminator);
+                }
+                unchangedStart = end;
+            }
+            lineStart = end;
+            length = 0;
+        }
+
+        void flushUnchanged() throws IOException {
+            output.copy(unchangedStart, lineStart - unchangedStart);
+            unchangedStart = lineStart;
+        }
+    }
+
+    private class Output {
+        private final FileChannel in;
+        private final FileChannel out;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Output(FileChannel in, FileChannel out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        void write(String text) throws IOException {
+            byte[] bytes = text.getBytes(charset);
+            if (bytes.length > buffer.remaining()) {
+                flush();
+            }
+            if (bytes.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes));
+            } else {
+                buffer.put(bytes);
+            }
+        }
+
+        //copies [from, from + count) of the source straight to the target
+        void copy(long from, long count) throws IOException {
+            if (count <= 0) {
+                return;
+            }
+            flush();
+            long end = from + count;
+            while (from < end) {
+                long copied = in.transferTo(from, end - from, out);
+                if (copied <= 0) {
+                    throw new IOException("Source " + source + " was truncated while it was being copied");
+                }
+                from += copied;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
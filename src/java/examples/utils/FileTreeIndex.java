@@ -0,0 +1,476 @@
+package examples.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+public class FileTreeIndex implements Closeable {
+    //Running the same Files.find() query over and over walks the whole tree every time.
+    //The index keeps the paths, sizes and mtimes of a tree in memory (and optionally on disk)
+    //and answers suffix and glob queries without touching the file system.
+    //
+    //update() brings the index up to date:
+    //- without watch() it compares the mtime of every indexed directory and only re-lists the changed ones.
+    //  Adding, removing or renaming an entry changes the mtime of its directory,
+    //  writing to an existing file doesn't, so sizes are only refreshed for files in changed directories.
+    //- after watch() it applies the WatchService events collected since the last update.
+    //Queries see the state of the last update.
+
+    private static final int MAGIC = 0x46544958; // "FTIX"
+    private static final Pattern EXTENSION_SUFFIX = Pattern.compile("\\.[^./\\\\]+");
+
+    public static class Entry {
+        private final Path path;
+        private final int depth;
+        private final boolean directory;
+        private final long size;
+        private final long modified;
+
+        Entry(Path path, int depth, boolean directory, long size, long modified) {
+            this.path = path;
+            this.depth = depth;
+            this.directory = directory;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        //last modified time in milliseconds
+        public long getModified() {
+            return modified;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry [path=" + path + ", directory=" + directory + ", size=" + size + ", modified=" + modified + "]";
+        }
+    }
+
+    private final Path root;
+    private final int maxDepth;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Path, Entry> entries = new HashMap<>();
+    //children of every directory that is listed, i.e. above maxDepth
+    private final Map<Path, Set<Path>> children = new HashMap<>();
+    //file extension (without the dot) -> paths, answers endsWith(".js") style queries with one lookup
+    private final Map<String, Set<Path>> byExtension = new HashMap<>();
+
+    private WatchService watcher;
+    private final Map<WatchKey, Path> watchKeys = new HashMap<>();
+
+    private FileTreeIndex(Path root, int maxDepth) {
+        this.root = root;
+        this.maxDepth = maxDepth;
+    }
+
+    //Walks the whole tree once, same start and depth semantics as Files.find
+    public static FileTreeIndex build(Path root, int maxDepth) throws IOException {
+        FileTreeIndex index = new FileTreeIndex(root, maxDepth);
+        index.scan(root, 0);
+        return index;
+    }
+
+    //Loads an index saved with save(). Call update() to catch up with changes made since then.
+    public static FileTreeIndex load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a file tree index: " + file);
+            }
+            Path root = Path.of(in.readUTF());
+            FileTreeIndex index = new FileTreeIndex(root, in.readInt());
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String relative = in.readUTF();
+                Path path = relative.isEmpty() ? root : root.resolve(relative);
+                boolean directory = in.readBoolean();
+                long size = in.readLong();
+                long modified = in.readLong();
+                index.add(new Entry(path, index.depth(path), directory, size, modified));
+            }
+            return index;
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(root.toString());
+            out.writeInt(maxDepth);
+            out.writeInt(entries.size());
+            //parents are written before their children so load() can rebuild the tree in one pass
+            List<Entry> sorted = new ArrayList<>(entries.values());
+            sorted.sort((e1, e2) -> Integer.compare(e1.depth, e2.depth));
+            for (Entry entry : sorted) {
+                out.writeUTF(entry.path.equals(root) ? "" : root.relativize(entry.path).toString());
+                out.writeBoolean(entry.directory);
+                out.writeLong(entry.size);
+                out.writeLong(entry.modified);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Registers every indexed directory with a WatchService, from now on update() only applies the events
+    public void watch() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (watcher == null) {
+                watcher = root.getFileSystem().newWatchService();
+                for (Path directory : children.keySet()) {
+                    register(directory);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void update() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (watcher == null) {
+                refreshChangedDirectories();
+            } else {
+                applyWatchEvents();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //Same result as Files.find(root, maxDepth, (path, attr) -> String.valueOf(path).endsWith(suffix))
+    public List<Path> findBySuffix(String suffix) {
+        lock.readLock().lock();
+        try {
+            if (EXTENSION_SUFFIX.matcher(suffix).matches()) {
+                Set<Path> paths = byExtension.get(suffix.substring(1));
+                return paths == null ? new ArrayList<>() : new ArrayList<>(paths);
+            }
+            List<Path> result = new ArrayList<>();
+            for (Path path : entries.keySet()) {
+                if (String.valueOf(path).endsWith(suffix)) {
+                    result.add(path);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //Glob such as "**/*.js" matched against the path relative to the root
+    public List<Path> glob(String glob) {
+        PathMatcher matcher = root.getFileSystem().getPathMatcher("glob:" + glob);
+        lock.readLock().lock();
+        try {
+            List<Path> result = new ArrayList<>();
+            for (Path path : entries.keySet()) {
+                if (!path.equals(root) && matcher.matches(root.relativize(path))) {
+                    result.add(path);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Entry get(Path path) {
+        lock.readLock().lock();
+        try {
+            return entries.get(path);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (watcher != null) {
+                watcher.close();
+                watcher = null;
+                watchKeys.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void refreshChangedDirectories() throws IOException {
+        for (Path directory : new ArrayList<>(children.keySet())) {
+            Entry entry = entries.get(directory);
+            if (entry == null) {
+                //removed together with a parent earlier in this loop
+                continue;
+            }
+            BasicFileAttributes attrs = attributes(directory);
+            if (attrs == null || !attrs.isDirectory()) {
+                remove(directory);
+                if (attrs != null) {
+                    add(toEntry(directory, entry.depth, attrs));
+                }
+            } else if (attrs.lastModifiedTime().toMillis() != entry.modified) {
+                relist(directory, entry.depth, attrs);
+            }
+        }
+    }
+
+    private void applyWatchEvents() throws IOException {
+        Set<Path> dirty = new LinkedHashSet<>();
+        WatchKey key;
+        try {
+            while ((key = watcher.poll()) != null) {
+                Path directory = watchKeys.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (directory == null) {
+                        continue;
+                    }
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY && event.context() instanceof Path) {
+                        //content changed, the directory listing is still the same
+                        restat(directory.resolve((Path) event.context()));
+                    } else {
+                        //created, deleted or OVERFLOW: the listing has to be read again
+                        dirty.add(directory);
+                    }
+                }
+                if (!key.reset()) {
+                    watchKeys.remove(key);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            return;
+        }
+        for (Path directory : dirty) {
+            Entry entry = entries.get(directory);
+            if (entry == null) {
+                continue;
+            }
+            BasicFileAttributes attrs = attributes(directory);
+            if (attrs == null || !attrs.isDirectory()) {
+                //the parent directory gets its own event
+                continue;
+            }
+            relist(directory, entry.depth, attrs);
+        }
+    }
+
+    private void restat(Path path) throws IOException {
+        Entry entry = entries.get(path);
+        if (entry == null || entry.directory) {
+            return;
+        }
+        BasicFileAttributes attrs = attributes(path);
+        if (attrs != null && !attrs.isDirectory()) {
+            replace(toEntry(path, entry.depth, attrs));
+        }
+    }
+
+    //Reads the listing of a directory again and applies the differences
+    private void relist(Path directory, int depth, BasicFileAttributes attrs) throws IOException {
+        replace(toEntry(directory, depth, attrs));
+        Set<Path> current = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path child : stream) {
+                current.add(child);
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        Set<Path> known = children.getOrDefault(directory, new HashSet<>());
+        for (Path child : new ArrayList<>(known)) {
+            if (!current.contains(child)) {
+                remove(child);
+            }
+        }
+        for (Path child : current) {
+            BasicFileAttributes childAttrs = attributes(child);
+            if (childAttrs == null) {
+                continue;
+            }
+            Entry old = entries.get(child);
+            if (old == null || old.directory != childAttrs.isDirectory()) {
+                if (old != null) {
+                    remove(child);
+                }
+                scan(child, depth + 1);
+            } else if (!old.directory) {
+                replace(toEntry(child, depth + 1, childAttrs));
+            }
+        }
+    }
+
+    //Adds a path and everything below it, the directories are listed in parallel
+    private void scan(Path start, int depth) throws IOException {
+        Map<Path, BasicFileAttributes> found = new ConcurrentHashMap<>();
+        try (Stream<Path> stream = ParallelFileWalker.find(start, maxDepth - depth, (path, attrs) -> {
+            found.put(path, attrs);
+            return false;
+        })) {
+            //nothing is emitted, running the stream to the end waits for the walk to finish
+            stream.forEach(path -> { });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        //parents first, so every child finds the children set of its parent
+        List<Path> paths = new ArrayList<>(found.keySet());
+        //depth() and not getNameCount(): the empty root path has a name count of 1, same as its children
+        paths.sort(Comparator.comparingInt(this::depth));
+        for (Path path : paths) {
+            add(toEntry(path, depth(path), found.get(path)));
+        }
+    }
+
+    private Entry toEntry(Path path, int depth, BasicFileAttributes attrs) {
+        return new Entry(path, depth, attrs.isDirectory(), attrs.size(), attrs.lastModifiedTime().toMillis());
+    }
+
+    private void add(Entry entry) throws IOException {
+        entries.put(entry.path, entry);
+        String extension = extension(entry.path);
+        if (extension != null) {
+            byExtension.computeIfAbsent(extension, e -> new HashSet<>()).add(entry.path);
+        }
+        if (!entry.path.equals(root)) {
+            Set<Path> siblings = children.get(parent(entry.path));
+            if (siblings != null) {
+                siblings.add(entry.path);
+            }
+        }
+        if (entry.directory && entry.depth < maxDepth) {
+            children.computeIfAbsent(entry.path, p -> new HashSet<>());
+            if (watcher != null) {
+                register(entry.path);
+            }
+        }
+    }
+
+    //with the root Paths.get("") top level entries like "a.js" have no parent
+    private Path parent(Path path) {
+        Path parent = path.getParent();
+        return parent != null ? parent : root;
+    }
+
+    private void replace(Entry entry) {
+        entries.put(entry.path, entry);
+    }
+
+    private void remove(Path path) {
+        Entry entry = entries.remove(path);
+        if (entry == null) {
+            return;
+        }
+        String extension = extension(path);
+        if (extension != null) {
+            Set<Path> paths = byExtension.get(extension);
+            if (paths != null) {
+                paths.remove(path);
+            }
+        }
+        if (!path.equals(root)) {
+            Set<Path> siblings = children.get(parent(path));
+            if (siblings != null) {
+                siblings.remove(path);
+            }
+        }
+        Set<Path> below = children.remove(path);
+        if (below != null) {
+            for (Path child : new ArrayList<>(below)) {
+                remove(child);
+            }
+        }
+        watchKeys.entrySet().removeIf(watched -> {
+            if (watched.getValue().equals(path)) {
+                watched.getKey().cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void register(Path directory) throws IOException {
+        WatchKey key = directory.register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        watchKeys.put(key, directory);
+    }
+
+    private int depth(Path path) {
+        return path.equals(root) ? 0 : root.relativize(path).getNameCount();
+    }
+
+    private static String extension(Path path) {
+        Path name = path.getFileName();
+        if (name == null) {
+            return null;
+        }
+        String fileName = name.toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 || dot == fileName.length() - 1 ? null : fileName.substring(dot + 1);
+    }
+
+    private static BasicFileAttributes attributes(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
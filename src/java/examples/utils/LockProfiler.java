@@ -0,0 +1,199 @@
+package examples.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+public class LockProfiler {
+    //Collects the statistics of the profiled locks (ProfiledReentrantLock, ProfiledReadWriteLock,
+    //ProfiledStampedLock) by lock name, so it's visible which locks are hot:
+    //
+    //  acquisitions / contended: how often the lock was taken and how often a thread had to wait for it
+    //  wait times:               how long contended acquisitions waited, every contended acquisition is timed
+    //  hold times:               how long the lock was held, measured for a sample of the acquisitions
+    //
+    //Uncontended acquisitions only pay for a LongAdder increment (plus two nanoTime() calls when sampled),
+    //contended ones are slow anyway. Every contended acquisition is also a JFR event (examples.LockContention),
+    //so a recording shows the waits with stack traces next to the JDK's own jdk.JavaMonitorEnter events.
+
+    //hold times are measured for 1 in DEFAULT_SAMPLE_RATE acquisitions
+    public static final int DEFAULT_SAMPLE_RATE = 16;
+
+    private static final ConcurrentMap<String, LockStats> LOCKS = new ConcurrentHashMap<>();
+
+    @Name("examples.LockContention")
+    @Label("Lock Contention")
+    @Description("A thread waited for a profiled lock")
+    @Category({"Examples", "Locks"})
+    static class ContentionEvent extends Event {
+        @Label("Lock")
+        String lock;
+        @Label("Mode")
+        String mode;
+        @Label("Acquired")
+        boolean acquired;
+        //not part of the event
+        transient long startNanos;
+    }
+
+    public static class Snapshot {
+        private final String name;
+        private final long acquisitions;
+        private final long contended;
+        private final long failedOptimisticReads;
+        private final LatencyHistogram waitTimes;
+        private final LatencyHistogram holdTimes;
+
+        Snapshot(String name, long acquisitions, long contended, long failedOptimisticReads,
+                LatencyHistogram waitTimes, LatencyHistogram holdTimes) {
+            this.name = name;
+            this.acquisitions = acquisitions;
+            this.contended = contended;
+            this.failedOptimisticReads = failedOptimisticReads;
+            this.waitTimes = waitTimes;
+            this.holdTimes = holdTimes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getAcquisitions() {
+            return acquisitions;
+        }
+
+        //acquisitions that had to wait, plus failed tryLock() calls
+        public long getContended() {
+            return contended;
+        }
+
+        public double getContentionRatio() {
+            return acquisitions == 0 ? 0.0 : (double) contended / acquisitions;
+        }
+
+        //StampedLock only: optimistic reads that had to be retried because validate() failed
+        public long getFailedOptimisticReads() {
+            return failedOptimisticReads;
+        }
+
+        //in nanoseconds
+        public LatencyHistogram getWaitTimes() {
+            return waitTimes;
+        }
+
+        //in nanoseconds
+        public LatencyHistogram getHoldTimes() {
+            return holdTimes;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": acquisitions=" + acquisitions + ", contended=" + contended
+                    + (failedOptimisticReads > 0 ? ", failedOptimisticReads=" + failedOptimisticReads : "")
+                    + ", wait [" + waitTimes + "], hold [" + holdTimes + "]";
+        }
+    }
+
+    static class LockStats {
+        final String name;
+        private final int sampleRate;
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder contended = new LongAdder();
+        private final LongAdder failedOptimisticReads = new LongAdder();
+        private final LatencyHistogram waitTimes = new LatencyHistogram();
+        private final LatencyHistogram holdTimes = new LatencyHistogram();
+
+        LockStats(String name, int sampleRate) {
+            this.name = name;
+            this.sampleRate = sampleRate;
+        }
+
+        //Returns the start time if the hold time of this acquisition is to be measured, otherwise 0
+        long acquired() {
+            acquisitions.increment();
+            if (sampleRate <= 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0) {
+                return System.nanoTime() | 1L;
+            }
+            return 0L;
+        }
+
+        void released(long holdStart) {
+            if (holdStart != 0L) {
+                holdTimes.record(System.nanoTime() - holdStart);
+            }
+        }
+
+        ContentionEvent startWait() {
+            ContentionEvent event = new ContentionEvent();
+            event.begin();
+            event.startNanos = System.nanoTime();
+            return event;
+        }
+
+        void endWait(ContentionEvent event, String mode, boolean acquired) {
+            waitTimes.record(System.nanoTime() - event.startNanos);
+            contended.increment();
+            event.end();
+            if (event.shouldCommit()) {
+                event.lock = name;
+                event.mode = mode;
+                event.acquired = acquired;
+                event.commit();
+            }
+        }
+
+        //tryLock() without a timeout that found the lock taken
+        void failed() {
+            contended.increment();
+        }
+
+        void failedOptimisticRead() {
+            failedOptimisticReads.increment();
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(name, acquisitions.sum(), contended.sum(), failedOptimisticReads.sum(),
+                    waitTimes.copy(), holdTimes.copy());
+        }
+
+        void reset() {
+            acquisitions.reset();
+            contended.reset();
+            failedOptimisticReads.reset();
+            waitTimes.reset();
+            holdTimes.reset();
+        }
+    }
+
+    //Locks created with the same name share their statistics, e.g. one lock per instance of a class
+    static LockStats register(String name, int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("sampleRate must be at least 1");
+        }
+        return LOCKS.computeIfAbsent(name, n -> new LockStats(n, sampleRate));
+    }
+
+    //sorted by name
+    public static Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> snapshots = new TreeMap<>();
+        LOCKS.forEach((name, stats) -> snapshots.put(name, stats.snapshot()));
+        return snapshots;
+    }
+
+    public static void reset() {
+        LOCKS.values().forEach(LockStats::reset);
+    }
+
+    public static void remove(String name) {
+        LOCKS.remove(name);
+    }
+}
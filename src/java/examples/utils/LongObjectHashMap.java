@@ -0,0 +1,140 @@
+package examples.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongFunction;
+
+public class LongObjectHashMap<V> {
+    //long -> V map without boxing the keys, same layout as LongLongHashMap: keys in a long array,
+    //values in an Object array, 0 marks a free key slot and the key 0 is stored separately.
+    //computeIfAbsent() with a non-capturing lambda allocates nothing once the key exists.
+    //Entries can't be removed, it's meant for aggregations.
+
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private V zeroValue;
+
+    public LongObjectHashMap() {
+        this(16);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(LongLongHashMap.capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size + (zeroValue != null ? 1 : 0);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0L) {
+            return zeroValue;
+        }
+        int slot = slot(key);
+        return keys[slot] == key ? (V) values[slot] : null;
+    }
+
+    //null values are not allowed
+    public void put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        if (key == 0L) {
+            zeroValue = value;
+            return;
+        }
+        int slot = slot(key);
+        if (keys[slot] == key) {
+            values[slot] = value;
+        } else {
+            insert(slot, key, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+        if (key == 0L) {
+            if (zeroValue == null) {
+                zeroValue = mappingFunction.apply(key);
+            }
+            return zeroValue;
+        }
+        int slot = slot(key);
+        if (keys[slot] == key) {
+            return (V) values[slot];
+        }
+        V value = mappingFunction.apply(key);
+        insert(slot, key, value);
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        if (zeroValue != null) {
+            action.accept(0L, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0L) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    //Boxed copy sorted by key, for printing or for code that needs a Map
+    public Map<Long, V> toMap() {
+        Map<Long, V> map = new TreeMap<>();
+        forEach(map::put);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    private int slot(long key) {
+        int slot = LongLongHashMap.mix(key) & mask;
+        while (keys[slot] != 0L && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, long key, V value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            allocate(keys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0L) {
+                    int newSlot = slot(oldKeys[i]);
+                    keys[newSlot] = oldKeys[i];
+                    values[newSlot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+}
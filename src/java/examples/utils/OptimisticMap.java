@@ -0,0 +1,244 @@
+package examples.utils;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+public class OptimisticMap<K, V> {
+    //Read mostly map built on the StampedLock optimistic read shown in MainSynchronization.
+    //get() doesn't write to shared memory at all: it takes an optimistic stamp, looks the key up
+    //and validates the stamp. Only if a writer got in between it retries under a read lock.
+    //Writers take the write lock, putAll() and replaceAll() apply a whole batch under one write lock.
+    //
+    //An optimistic read can see the table in the middle of a write, so the lookup must not depend on the
+    //table being consistent. That's why this is a small open addressing table (keys and values next to each other
+    //in one array, linear probing) instead of a HashMap: whatever a reader sees, the lookup ends after at most
+    //one pass over the array and can't throw. Same as ConcurrentHashMap null keys and values are not allowed.
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+    //[key0, value0, key1, value1, ...], the length is always a power of two
+    private Object[] table;
+    private int size;
+
+    public OptimisticMap() {
+        table = new Object[MIN_CAPACITY * 2];
+    }
+
+    public OptimisticMap(Map<? extends K, ? extends V> map) {
+        table = build(map);
+        size = map.size();
+    }
+
+    public V get(Object key) {
+        int hash = hash(key);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            V value = find(table, key, hash);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+        }
+        //a writer was active, read again under the read lock
+        stamp = lock.readLock();
+        try {
+            return find(table, key, hash);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public V getOrDefault(Object key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int result = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    public V put(K key, V value) {
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        long stamp = lock.writeLock();
+        try {
+            return insert(key, value, hash);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public V remove(Object key) {
+        int hash = hash(key);
+        long stamp = lock.writeLock();
+        try {
+            return delete(key, hash);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    //All entries become visible to readers at once
+    public void putAll(Map<? extends K, ? extends V> map) {
+        map.forEach((key, value) -> {
+            Objects.requireNonNull(key);
+            Objects.requireNonNull(value);
+        });
+        long stamp = lock.writeLock();
+        try {
+            map.forEach((key, value) -> insert(key, value, hash(key)));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    //Replaces the whole content, e.g. on a config reload.
+    //The new table is built before the write lock is taken, so readers are only held up for a reference swap.
+    public void replaceAll(Map<? extends K, ? extends V> map) {
+        Object[] replacement = build(map);
+        long stamp = lock.writeLock();
+        try {
+            table = replacement;
+            size = map.size();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        replaceAll(Map.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V find(Object[] table, Object key, int hash) {
+        int mask = table.length - 2;
+        int index = (hash << 1) & mask;
+        //bounded by the table length, even if a concurrent writer left the table without an empty slot
+        for (int probes = table.length >> 1; probes > 0; probes--) {
+            Object candidate = table[index];
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate == key || candidate.equals(key)) {
+                return (V) table[index + 1];
+            }
+            index = (index + 2) & mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V insert(Object key, Object value, int hash) {
+        int mask = table.length - 2;
+        int index = (hash << 1) & mask;
+        while (table[index] != null) {
+            if (table[index].equals(key)) {
+                V old = (V) table[index + 1];
+                table[index + 1] = value;
+                return old;
+            }
+            index = (index + 2) & mask;
+        }
+        table[index + 1] = value;
+        table[index] = key;
+        if (++size * 3 > table.length) {
+            resize();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V delete(Object key, int hash) {
+        int mask = table.length - 2;
+        int index = (hash << 1) & mask;
+        while (table[index] != null) {
+            if (table[index].equals(key)) {
+                V old = (V) table[index + 1];
+                shiftBack(index);
+                size--;
+                return old;
+            }
+            index = (index + 2) & mask;
+        }
+        return null;
+    }
+
+    //Linear probing delete: move later entries of the same probe run into the hole instead of leaving tombstones
+    private void shiftBack(int hole) {
+        int mask = table.length - 2;
+        int index = hole;
+        while (true) {
+            index = (index + 2) & mask;
+            Object key = table[index];
+            if (key == null) {
+                break;
+            }
+            int home = (hash(key) << 1) & mask;
+            //can the entry at index move to the hole without ending up before its home slot?
+            boolean movable = hole <= index
+                    ? home <= hole || home > index
+                    : home <= hole && home > index;
+            if (movable) {
+                table[hole] = key;
+                table[hole + 1] = table[index + 1];
+                hole = index;
+            }
+        }
+        table[hole] = null;
+        table[hole + 1] = null;
+    }
+
+    private void resize() {
+        //filled completely before it's published, readers see either the old or the new table
+        Object[] resized = new Object[table.length * 2];
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != null) {
+                place(resized, table[i], table[i + 1]);
+            }
+        }
+        table = resized;
+    }
+
+    private static Object[] build(Map<?, ?> map) {
+        int capacity = MIN_CAPACITY;
+        //keep the table at most half full
+        while (capacity < map.size() * 2) {
+            capacity <<= 1;
+        }
+        Object[] table = new Object[capacity * 2];
+        map.forEach((key, value) -> place(table, key, Objects.requireNonNull(value)));
+        return table;
+    }
+
+    //puts a key that isn't in the table yet into its first free slot
+    private static void place(Object[] table, Object key, Object value) {
+        int mask = table.length - 2;
+        int index = (hash(key) << 1) & mask;
+        while (table[index] != null) {
+            index = (index + 2) & mask;
+        }
+        table[index] = key;
+        table[index + 1] = value;
+    }
+
+    private static int hash(Object key) {
+        //spread the high bits like HashMap does, the table only uses the low bits
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
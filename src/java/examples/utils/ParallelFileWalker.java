@@ -0,0 +1,192 @@
+package examples.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class ParallelFileWalker {
+    //Files.walk() and Files.find() list one directory after another on the calling thread,
+    //so a slow directory (network share, cold cache) stalls the whole walk.
+    //Here every directory is listed by its own fork/join task and the matching paths are handed to the
+    //stream as soon as they're found. The results come in no particular order, add sorted() if you need it.
+    //Same as Files.walk() symbolic links are not followed and the start path is at depth 0.
+    //At most RESULT_QUEUE_CAPACITY paths wait for the consumer, after that the walker threads block
+    //until it catches up, so a slow consumer doesn't end up with the whole tree in memory.
+
+    //listing directories blocks on I/O, so by default use more threads than cores
+    public static final int DEFAULT_PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors() * 4);
+
+    public static final int RESULT_QUEUE_CAPACITY = 10_000;
+
+    private static final Object END = new Object();
+
+    public static Stream<Path> walk(Path start, int maxDepth) {
+        return find(start, maxDepth, (path, attr) -> true);
+    }
+
+    public static Stream<Path> find(Path start, int maxDepth, BiPredicate<Path, BasicFileAttributes> matcher) {
+        return find(start, maxDepth, matcher, DEFAULT_PARALLELISM);
+    }
+
+    //The stream has to be closed (try-with-resources) to stop the walk and release the walker threads
+    public static Stream<Path> find(Path start, int maxDepth, BiPredicate<Path, BasicFileAttributes> matcher, int parallelism) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth must not be negative");
+        }
+        Walk walk = new Walk(maxDepth, matcher, new ForkJoinPool(parallelism));
+        walk.start(start);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(walk, Spliterator.DISTINCT | Spliterator.NONNULL), false)
+                .onClose(walk::cancel);
+    }
+
+    private static class Walk implements Iterator<Path> {
+        private final int maxDepth;
+        private final BiPredicate<Path, BasicFileAttributes> matcher;
+        private final ForkJoinPool pool;
+        //holds paths, failures and finally END
+        private final BlockingQueue<Object> results = new ArrayBlockingQueue<>(RESULT_QUEUE_CAPACITY);
+        private volatile boolean cancelled;
+        private Object next;
+
+        Walk(int maxDepth, BiPredicate<Path, BasicFileAttributes> matcher, ForkJoinPool pool) {
+            this.maxDepth = maxDepth;
+            this.matcher = matcher;
+            this.pool = pool;
+        }
+
+        void start(Path start) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(start, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (matcher.test(start, attrs)) {
+                    put(start);
+                }
+                if (attrs.isDirectory() && maxDepth > 0) {
+                    pool.execute(new DirectoryTask(null, start, 0));
+                    return;
+                }
+            } catch (IOException | RuntimeException e) {
+                put(e);
+            }
+            finish();
+        }
+
+        //Blocks while the queue is full, gives up once the walk is cancelled
+        //(the consumer closed the stream and won't take anything anymore)
+        void put(Object result) {
+            try {
+                while (!cancelled) {
+                    if (results.offer(result, 100, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                //shutdownNow() of cancel()
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void finish() {
+            put(END);
+            pool.shutdown();
+        }
+
+        void cancel() {
+            cancelled = true;
+            pool.shutdownNow();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = results.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancel();
+                    throw new IllegalStateException("walk interrupted", e);
+                }
+            }
+            if (next instanceof Exception) {
+                Exception e = (Exception) next;
+                next = null;
+                if (e instanceof IOException) {
+                    throw new UncheckedIOException((IOException) e);
+                }
+                throw (RuntimeException) e;
+            }
+            return next != END;
+        }
+
+        @Override
+        public Path next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Path path = (Path) next;
+            next = null;
+            return path;
+        }
+
+        private class DirectoryTask extends CountedCompleter<Void> {
+            private static final long serialVersionUID = 1L;
+
+            private final Path directory;
+            private final int depth;
+
+            DirectoryTask(DirectoryTask parent, Path directory, int depth) {
+                super(parent);
+                this.directory = directory;
+                this.depth = depth;
+            }
+
+            @Override
+            public void compute() {
+                if (!cancelled) {
+                    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                        for (Path entry : entries) {
+                            if (cancelled) {
+                                break;
+                            }
+                            BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                            if (matcher.test(entry, attrs)) {
+                                put(entry);
+                            }
+                            if (attrs.isDirectory() && depth + 1 < maxDepth) {
+                                addToPendingCount(1);
+                                new DirectoryTask(this, entry, depth + 1).fork();
+                            }
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        //the walk goes on, the consumer sees the failure once it gets to it
+                        put(e);
+                    }
+                }
+                tryComplete();
+            }
+
+            @Override
+            public void onCompletion(CountedCompleter<?> caller) {
+                //only the root task completes last, once every directory below it is done
+                if (getCompleter() == null) {
+                    finish();
+                }
+            }
+        }
+    }
+}
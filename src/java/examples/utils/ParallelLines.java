@@ -0,0 +1,293 @@
+package examples.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+public class ParallelLines {
+    //Files.lines() and BufferedReader.lines() read on a single thread and split badly when made parallel,
+    //because the line boundaries are only known once everything before them has been read.
+    //This maps the file, cuts it into one chunk per core at newline boundaries and processes each chunk
+    //in its own fork/join task. Results are combined in file order, so collect() sees the lines in the same
+    //order as Files.lines() would. Lines are terminated by \n, \r or \r\n same as BufferedReader.readLine().
+    //Malformed input fails with an UncheckedIOException caused by a MalformedInputException, like Files.lines(),
+    //except in the lines grep() skips without decoding them.
+
+    //a single mapping can't exceed 2 GB, files larger than chunks * MAX_CHUNK_SIZE get more chunks
+    static final long MAX_CHUNK_SIZE = 1L << 30;
+
+    //charsets in which no char's encoding shows up inside another char's encoding
+    private static final Set<Charset> BYTE_SEARCH_CHARSETS =
+            Set.of(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.US_ASCII);
+
+    private final Path path;
+    private final Charset charset;
+    private final Predicate<String> filter;
+    //when set only lines containing these bytes are decoded to a String
+    private final BytePattern pattern;
+    private final ForkJoinPool pool;
+    private final int chunks;
+
+    private ParallelLines(Path path, Charset charset, Predicate<String> filter, BytePattern pattern, ForkJoinPool pool, int chunks) {
+        this.path = path;
+        this.charset = charset;
+        this.filter = filter;
+        this.pattern = pattern;
+        this.pool = pool;
+        this.chunks = chunks;
+    }
+
+    public static ParallelLines of(Path path) {
+        return of(path, StandardCharsets.UTF_8);
+    }
+
+    //The charset has to encode '\n' as the single byte 0x0A (UTF-8, ISO-8859-1, US-ASCII...),
+    //otherwise the file can't be cut at newline bytes
+    public static ParallelLines of(Path path, Charset charset) {
+        byte[] newline = "\n".getBytes(charset);
+        if (newline.length != 1 || newline[0] != '\n') {
+            throw new IllegalArgumentException("Unsupported charset " + charset);
+        }
+        return new ParallelLines(path, charset, line -> true, null, ForkJoinPool.commonPool(),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    //Returns a new instance, filters are combined with and
+    public ParallelLines filter(Predicate<String> predicate) {
+        return new ParallelLines(path, charset, filter.and(predicate), pattern, pool, chunks);
+    }
+
+    //Same result as filter(line -> line.contains(literal)), but the raw bytes are searched and only
+    //the matching lines are decoded. When few lines match this saves decoding and allocating all the others.
+    //As the other lines are never decoded, malformed input in them isn't reported.
+    //The byte search is only used for UTF-8, ISO-8859-1 and US-ASCII, where a byte match is a char match,
+    //with other charsets or a literal the charset can't encode grep() is just filter().
+    public ParallelLines grep(String literal) {
+        if (literal.isEmpty()) {
+            return this;
+        }
+        if (literal.indexOf('\n') >= 0 || literal.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("literal must not contain line terminators");
+        }
+        if (pattern != null || !BYTE_SEARCH_CHARSETS.contains(charset)) {
+            //only one byte pattern is searched for, further literals are checked on the decoded line
+            return filter(line -> line.contains(literal));
+        }
+        BytePattern bytes;
+        try {
+            bytes = BytePattern.of(literal, charset);
+        } catch (IllegalArgumentException e) {
+            //not encodable, can't match any decoded line but one with replacement chars
+            return filter(line -> line.contains(literal));
+        }
+        //the decoded line is checked as well, so a byte match can never let through a line contains() rejects
+        return new ParallelLines(path, charset, filter.and(line -> line.contains(literal)), bytes, pool, chunks);
+    }
+
+    public ParallelLines pool(ForkJoinPool pool) {
+        return new ParallelLines(path, charset, filter, pattern, pool, chunks);
+    }
+
+    public ParallelLines chunks(int chunks) {
+        if (chunks <= 0) {
+            throw new IllegalArgumentException("chunks must be positive");
+        }
+        return new ParallelLines(path, charset, filter, pattern, pool, chunks);
+    }
+
+    public long count() throws IOException {
+        return collect(Collectors.counting());
+    }
+
+    public List<String> toList() throws IOException {
+        return collect(Collectors.toList());
+    }
+
+    public <A, R> R collect(Collector<String, A, R> collector) throws IOException {
+        List<ByteBuffer> parts = split();
+        if (parts.isEmpty()) {
+            return collector.finisher().apply(collector.supplier().get());
+        }
+        A container = pool.invoke(new ChunkTask<>(parts, 0, parts.size(), collector));
+        return collector.finisher().apply(container);
+    }
+
+    //Maps the file as chunks that each start at the beginning of a line
+    List<ByteBuffer> split() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long target = Math.min(MAX_CHUNK_SIZE, Math.max(1, (size + chunks - 1) / chunks));
+            List<ByteBuffer> parts = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                long end = nextLineStart(channel, Math.min(size, start + target), size);
+                if (end - start > Integer.MAX_VALUE) {
+                    throw new IOException("Line starting before offset " + start + " is too long to map");
+                }
+                //the mapping stays valid after the channel is closed
+                parts.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                start = end;
+            }
+            return parts;
+        }
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private class ChunkTask<A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<ByteBuffer> parts;
+        private final int from;
+        private final int to;
+        private final Collector<String, A, ?> collector;
+
+        ChunkTask(List<ByteBuffer> parts, int from, int to, Collector<String, A, ?> collector) {
+            this.parts = parts;
+            this.from = from;
+            this.to = to;
+            this.collector = collector;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from == 1) {
+                A container = collector.supplier().get();
+                Consumer<String> action = line -> {
+                    if (filter.test(line)) {
+                        collector.accumulator().accept(container, line);
+                    }
+                };
+                if (pattern == null) {
+                    forEachLine(parts.get(from), action);
+                } else {
+                    forEachMatchingLine(parts.get(from), action);
+                }
+                return container;
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask<A> left = new ChunkTask<>(parts, from, mid, collector);
+            ChunkTask<A> right = new ChunkTask<>(parts, mid, to, collector);
+            left.fork();
+            A rightResult = right.compute();
+            //combine in file order
+            return collector.combiner().apply(left.join(), rightResult);
+        }
+    }
+
+    private void forEachLine(ByteBuffer chunk, Consumer<String> action) {
+        byte[] scratch = new byte[256];
+        int limit = chunk.limit();
+        int lineStart = 0;
+        int i = 0;
+        while (i < limit) {
+            byte b = chunk.get(i);
+            if (b == '\n' || b == '\r') {
+                scratch = decode(chunk, lineStart, i, scratch, action);
+                i++;
+                if (b == '\r' && i < limit && chunk.get(i) == '\n') {
+                    i++;
+                }
+                lineStart = i;
+            } else {
+                i++;
+            }
+        }
+        //last line without a terminator
+        if (lineStart < limit) {
+            decode(chunk, lineStart, limit, scratch, action);
+        }
+    }
+
+    private void forEachMatchingLine(ByteBuffer chunk, Consumer<String> action) {
+        byte[] scratch = new byte[256];
+        int limit = chunk.limit();
+        int searchFrom = 0;
+        while (searchFrom < limit) {
+            int match = pattern.indexOf(chunk, searchFrom, limit);
+            if (match < 0) {
+                return;
+            }
+            //widen the match to the enclosing line, searchFrom is always the start of a line
+            int lineStart = match;
+            while (lineStart > searchFrom && !isTerminator(chunk.get(lineStart - 1))) {
+                lineStart--;
+            }
+            int lineEnd = match + pattern.length();
+            while (lineEnd < limit && !isTerminator(chunk.get(lineEnd))) {
+                lineEnd++;
+            }
+            scratch = decode(chunk, lineStart, lineEnd, scratch, action);
+            searchFrom = lineEnd;
+            if (searchFrom < limit) {
+                byte terminator = chunk.get(searchFrom++);
+                if (terminator == '\r' && searchFrom < limit && chunk.get(searchFrom) == '\n') {
+                    searchFrom++;
+                }
+            }
+        }
+    }
+
+    private static boolean isTerminator(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private byte[] decode(ByteBuffer chunk, int from, int to, byte[] scratch, Consumer<String> action) {
+        int length = to - from;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        chunk.get(from, scratch, 0, length);
+        String line = new String(scratch, 0, length, charset);
+        //new String() replaces malformed bytes, only lines that contain a replacement char are decoded again strictly
+        if (line.indexOf('\uFFFD') >= 0) {
+            checkMalformed(scratch, length);
+        }
+        action.accept(line);
+        return scratch;
+    }
+
+    private void checkMalformed(byte[] bytes, int length) {
+        try {
+            charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes, 0, length));
+        } catch (CharacterCodingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package examples.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class Pipeline<S, T> {
+    //filter/map pipeline that puts its stages into a cheaper order before it runs.
+    //MainStreamBuilding shows that filter before map saves map calls, but only if it's written that way.
+    //Here the stages carry hints (pure or not, cost per call, selectivity = fraction of elements a filter lets
+    //through) and optimize() rewrites the declared order:
+    //
+    //  - filterSource() filters test the source element, so they don't depend on any map and move to the front
+    //  - consecutive filters are ordered by cost / (1 - selectivity): cheap filters that drop a lot go first
+    //  - consecutive maps are fused into one function
+    //  - impure stages (side effects, peek) are barriers, nothing is moved across them
+    //
+    //The result runs as a java.util.stream chain (stream()) or as a plain loop (toList(), forEach()),
+    //explain() prints the declared and the optimized stages with the estimated cost per source element.
+    //
+    //  List<Row> rows = Pipeline.of(persons)
+    //          .map(p -> render(p), Hints.pure().named("render").cost(50))
+    //          .filterSource(p -> p.getAge() >= 18, Hints.pure().named("adult").selectivity(0.2))
+    //          .toList();
+    //  -> adult runs first and render only for the adults
+
+    //What the optimizer may assume about a stage
+    public static final class Hints {
+        private static final Hints PURE = new Hints(null, true, 1.0, 0.5);
+        private static final Hints IMPURE = new Hints(null, false, 1.0, 0.5);
+
+        private final String name;
+        private final boolean pure;
+        private final double cost;
+        private final double selectivity;
+
+        private Hints(String name, boolean pure, double cost, double selectivity) {
+            this.name = name;
+            this.pure = pure;
+            this.cost = cost;
+            this.selectivity = selectivity;
+        }
+
+        //no side effects and the result only depends on the element, the stage may be moved or fused.
+        //It must not rely on the stages before it either: a null check that guards the next filter
+        //has to be part of that filter, otherwise the two may be swapped
+        public static Hints pure() {
+            return PURE;
+        }
+
+        //the stage stays where it is and so do the stages around it
+        public static Hints impure() {
+            return IMPURE;
+        }
+
+        //shown by explain()
+        public Hints named(String name) {
+            return new Hints(name, pure, cost, selectivity);
+        }
+
+        //relative cost per call, 1 by default
+        public Hints cost(double cost) {
+            if (cost < 0) {
+                throw new IllegalArgumentException("cost must not be negative");
+            }
+            return new Hints(name, pure, cost, selectivity);
+        }
+
+        //filters only: fraction of the elements that pass, 0.5 by default
+        public Hints selectivity(double selectivity) {
+            if (selectivity < 0 || selectivity > 1) {
+                throw new IllegalArgumentException("selectivity must be between 0 and 1");
+            }
+            return new Hints(name, pure, cost, selectivity);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isPure() {
+            return pure;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        public double getSelectivity() {
+            return selectivity;
+        }
+    }
+
+    private enum Kind {
+        MAP("map"),
+        FILTER("filter"),
+        SOURCE_FILTER("filterSource"),
+        PEEK("peek");
+
+        private final String operation;
+
+        Kind(String operation) {
+            this.operation = operation;
+        }
+    }
+
+    //Stages work on Object, the types are checked by the methods that add them
+    private static final class Stage {
+        final Kind kind;
+        final String name;
+        final boolean pure;
+        final double cost;
+        final double selectivity;
+        final Function<Object, Object> function;
+        final Predicate<Object> predicate;
+        final Consumer<Object> action;
+
+        Stage(Kind kind, String name, boolean pure, double cost, double selectivity,
+                Function<Object, Object> function, Predicate<Object> predicate, Consumer<Object> action) {
+            this.kind = kind;
+            this.name = name;
+            this.pure = pure;
+            this.cost = cost;
+            this.selectivity = selectivity;
+            this.function = function;
+            this.predicate = predicate;
+            this.action = action;
+        }
+
+        boolean isFilter() {
+            return kind == Kind.FILTER || kind == Kind.SOURCE_FILTER;
+        }
+
+        //filters that are cheap and drop many elements first
+        double rank() {
+            return selectivity >= 1.0 ? Double.MAX_VALUE : cost / (1.0 - selectivity);
+        }
+
+        @Override
+        public String toString() {
+            return kind.operation + " " + name + " (" + (pure ? "" : "impure, ") + "cost " + cost
+                    + (isFilter() ? ", selectivity " + selectivity : "") + ")";
+        }
+    }
+
+    //holds the source element next to the current one, for filterSource() stages that stay behind a map
+    private static final class Row {
+        final Object source;
+        Object current;
+
+        Row(Object source) {
+            this.source = source;
+            this.current = source;
+        }
+    }
+
+    private final Iterable<S> source;
+    private final List<Stage> stages;
+    //null until optimize() runs
+    private List<Stage> optimized;
+
+    private Pipeline(Iterable<S> source, List<Stage> stages) {
+        this.source = source;
+        this.stages = stages;
+    }
+
+    public static <S> Pipeline<S, S> of(Iterable<S> source) {
+        return new Pipeline<>(source, Collections.emptyList());
+    }
+
+    public <R> Pipeline<S, R> map(Function<? super T, ? extends R> mapper) {
+        return map(mapper, Hints.pure());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> Pipeline<S, R> map(Function<? super T, ? extends R> mapper, Hints hints) {
+        return add(Kind.MAP, hints, (Function<Object, Object>) mapper, null, null);
+    }
+
+    public Pipeline<S, T> filter(Predicate<? super T> predicate) {
+        return filter(predicate, Hints.pure());
+    }
+
+    //tests the current element, so it can't move before the maps in front of it
+    @SuppressWarnings("unchecked")
+    public Pipeline<S, T> filter(Predicate<? super T> predicate, Hints hints) {
+        return add(Kind.FILTER, hints, null, (Predicate<Object>) predicate, null);
+    }
+
+    public Pipeline<S, T> filterSource(Predicate<? super S> predicate) {
+        return filterSource(predicate, Hints.pure());
+    }
+
+    //tests the source element, whatever the maps made of it, so a pure one can move in front of the maps
+    @SuppressWarnings("unchecked")
+    public Pipeline<S, T> filterSource(Predicate<? super S> predicate, Hints hints) {
+        return add(Kind.SOURCE_FILTER, hints, null, (Predicate<Object>) predicate, null);
+    }
+
+    //always a barrier, the calls are what peek is for
+    @SuppressWarnings("unchecked")
+    public Pipeline<S, T> peek(Consumer<? super T> action) {
+        return add(Kind.PEEK, Hints.impure(), null, null, (Consumer<Object>) action);
+    }
+
+    private <R> Pipeline<S, R> add(Kind kind, Hints hints, Function<Object, Object> function,
+            Predicate<Object> predicate, Consumer<Object> action) {
+        String name = hints.getName() != null ? hints.getName() : "#" + (stages.size() + 1);
+        List<Stage> next = new ArrayList<>(stages);
+        next.add(new Stage(kind, name, hints.isPure(), hints.getCost(), kind == Kind.MAP ? 1.0 : hints.getSelectivity(),
+                function, predicate, action));
+        return new Pipeline<>(source, Collections.unmodifiableList(next));
+    }
+
+    //the optimized stages as a stream chain on the source
+    @SuppressWarnings("unchecked")
+    public Stream<T> stream() {
+        List<Stage> plan = optimize();
+        Stream<Object> stream = source instanceof Collection
+                ? ((Collection<Object>) source).stream()
+                : StreamSupport.stream((Spliterator<Object>) source.spliterator(), false);
+        if (!needsSource(plan)) {
+            for (Stage stage : plan) {
+                switch (stage.kind) {
+                    case MAP:
+                        stream = stream.map(stage.function);
+                        break;
+                    case FILTER:
+                    case SOURCE_FILTER:
+                        stream = stream.filter(stage.predicate);
+                        break;
+                    case PEEK:
+                        stream = stream.peek(stage.action);
+                        break;
+                }
+            }
+            return (Stream<T>) stream;
+        }
+        Stream<Row> rows = stream.map(Row::new);
+        for (Stage stage : plan) {
+            switch (stage.kind) {
+                case MAP:
+                    rows = rows.map(row -> {
+                        row.current = stage.function.apply(row.current);
+                        return row;
+                    });
+                    break;
+                case FILTER:
+                    rows = rows.filter(row -> stage.predicate.test(row.current));
+                    break;
+                case SOURCE_FILTER:
+                    rows = rows.filter(row -> stage.predicate.test(row.source));
+                    break;
+                case PEEK:
+                    rows = rows.peek(row -> stage.action.accept(row.current));
+                    break;
+            }
+        }
+        return rows.map(row -> (T) row.current);
+    }
+
+    //runs the optimized stages in a loop over the source
+    public List<T> toList() {
+        List<T> result = new ArrayList<>();
+        forEach(result::add);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super T> action) {
+        Stage[] plan = optimize().toArray(new Stage[0]);
+        elements:
+        for (S element : source) {
+            Object current = element;
+            for (Stage stage : plan) {
+                switch (stage.kind) {
+                    case MAP:
+                        current = stage.function.apply(current);
+                        break;
+                    case FILTER:
+                        if (!stage.predicate.test(current)) {
+                            continue elements;
+                        }
+                        break;
+                    case SOURCE_FILTER:
+                        if (!stage.predicate.test(element)) {
+                            continue elements;
+                        }
+                        break;
+                    case PEEK:
+                        stage.action.accept(current);
+                        break;
+                }
+            }
+            action.accept((T) current);
+        }
+    }
+
+    //The declared and the optimized stages, with the estimated cost per source element
+    public String explain() {
+        List<Stage> plan = optimize();
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("declared (cost per element %.2f):", cost(stages)));
+        appendStages(builder, stages);
+        builder.append(System.lineSeparator()).append(String.format("optimized (cost per element %.2f):", cost(plan)));
+        appendStages(builder, plan);
+        if (needsSource(plan)) {
+            builder.append(System.lineSeparator()).append("  the stream carries the source element for filterSource after a map");
+        }
+        return builder.toString();
+    }
+
+    private static void appendStages(StringBuilder builder, List<Stage> stages) {
+        for (int i = 0; i < stages.size(); i++) {
+            builder.append(System.lineSeparator()).append("  ").append(i + 1).append(' ').append(stages.get(i));
+        }
+    }
+
+    //sum of the stage costs, each weighted with the fraction of elements that gets that far
+    private static double cost(List<Stage> stages) {
+        double reaching = 1.0;
+        double cost = 0.0;
+        for (Stage stage : stages) {
+            cost += reaching * stage.cost;
+            reaching *= stage.selectivity;
+        }
+        return cost;
+    }
+
+    private static boolean needsSource(List<Stage> plan) {
+        boolean mapped = false;
+        for (Stage stage : plan) {
+            if (stage.kind == Kind.MAP) {
+                mapped = true;
+            } else if (stage.kind == Kind.SOURCE_FILTER && mapped) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //The pipeline is immutable, the plan is computed once
+    private List<Stage> optimize() {
+        if (optimized == null) {
+            List<Stage> plan = new ArrayList<>();
+            int start = 0;
+            for (int i = 0; i <= stages.size(); i++) {
+                if (i == stages.size() || !stages.get(i).pure) {
+                    plan.addAll(optimizeSegment(stages.subList(start, i)));
+                    if (i < stages.size()) {
+                        plan.add(stages.get(i));
+                    }
+                    start = i + 1;
+                }
+            }
+            optimized = Collections.unmodifiableList(plan);
+        }
+        return optimized;
+    }
+
+    //stages between two barriers, all pure
+    private static List<Stage> optimizeSegment(List<Stage> segment) {
+        //filterSource stages go to the front, the others keep their order
+        List<Stage> hoisted = new ArrayList<>();
+        List<Stage> rest = new ArrayList<>();
+        for (Stage stage : segment) {
+            (stage.kind == Kind.SOURCE_FILTER ? hoisted : rest).add(stage);
+        }
+        hoisted.addAll(rest);
+
+        List<Stage> result = new ArrayList<>();
+        List<Stage> filters = new ArrayList<>();
+        Stage map = null;
+        for (Stage stage : hoisted) {
+            if (stage.kind == Kind.MAP) {
+                flushFilters(filters, result);
+                map = map == null ? stage : fuse(map, stage);
+            } else {
+                if (map != null) {
+                    result.add(map);
+                    map = null;
+                }
+                filters.add(stage);
+            }
+        }
+        flushFilters(filters, result);
+        if (map != null) {
+            result.add(map);
+        }
+        return result;
+    }
+
+    //a run of consecutive pure filters, any order gives the same elements, so the cheapest order is taken
+    private static void flushFilters(List<Stage> filters, List<Stage> result) {
+        filters.sort(Comparator.comparingDouble(Stage::rank));
+        result.addAll(filters);
+        filters.clear();
+    }
+
+    private static Stage fuse(Stage first, Stage second) {
+        Function<Object, Object> function = first.function.andThen(second.function);
+        return new Stage(Kind.MAP, first.name + " + " + second.name, true, first.cost + second.cost, 1.0,
+                function, null, null);
+    }
+}
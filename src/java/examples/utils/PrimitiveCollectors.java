@@ -0,0 +1,87 @@
+package examples.utils;
+
+import java.util.IntSummaryStatistics;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+public class PrimitiveCollectors {
+    //groupingBy collectors for int and long keys.
+    //Collectors.groupingBy(p -> p.getAge(), counting()) boxes every age into an Integer key, every count
+    //into a Long and keeps a HashMap node per group. These collect into LongLongHashMap / LongObjectHashMap:
+    //accumulating an element is a probe into a long array and an add, nothing is allocated.
+    //int keys are widened to long, so both key types end up in the same maps.
+    //
+    //  LongLongHashMap countByAge = persons.stream().collect(PrimitiveCollectors.countingByInt(Person::getAge));
+    //  long twentyThreeYearOlds = countByAge.getOrDefault(23, 0);
+
+    //number of elements per key
+    public static <T> Collector<T, ?, LongLongHashMap> countingByInt(ToIntFunction<? super T> key) {
+        return Collector.of(
+                LongLongHashMap::new,
+                (map, element) -> map.addTo(key.applyAsInt(element), 1L),
+                PrimitiveCollectors::addAll,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public static <T> Collector<T, ?, LongLongHashMap> countingByLong(ToLongFunction<? super T> key) {
+        return Collector.of(
+                LongLongHashMap::new,
+                (map, element) -> map.addTo(key.applyAsLong(element), 1L),
+                PrimitiveCollectors::addAll,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    //sum of value per key
+    public static <T> Collector<T, ?, LongLongHashMap> summingByInt(ToIntFunction<? super T> key, ToLongFunction<? super T> value) {
+        return Collector.of(
+                LongLongHashMap::new,
+                (map, element) -> map.addTo(key.applyAsInt(element), value.applyAsLong(element)),
+                PrimitiveCollectors::addAll,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public static <T> Collector<T, ?, LongLongHashMap> summingByLong(ToLongFunction<? super T> key, ToLongFunction<? super T> value) {
+        return Collector.of(
+                LongLongHashMap::new,
+                (map, element) -> map.addTo(key.applyAsLong(element), value.applyAsLong(element)),
+                PrimitiveCollectors::addAll,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    //count, sum, min, average and max of value per key, without widening the int values to double
+    public static <T> Collector<T, ?, LongObjectHashMap<IntSummaryStatistics>> summarizingByInt(
+            ToIntFunction<? super T> key, ToIntFunction<? super T> value) {
+        return Collector.of(
+                LongObjectHashMap<IntSummaryStatistics>::new,
+                (map, element) -> map.computeIfAbsent(key.applyAsInt(element), k -> new IntSummaryStatistics())
+                        .accept(value.applyAsInt(element)),
+                PrimitiveCollectors::combineAll,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public static <T> Collector<T, ?, LongObjectHashMap<IntSummaryStatistics>> summarizingByLong(
+            ToLongFunction<? super T> key, ToIntFunction<? super T> value) {
+        return Collector.of(
+                LongObjectHashMap<IntSummaryStatistics>::new,
+                (map, element) -> map.computeIfAbsent(key.applyAsLong(element), k -> new IntSummaryStatistics())
+                        .accept(value.applyAsInt(element)),
+                PrimitiveCollectors::combineAll,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    private static LongLongHashMap addAll(LongLongHashMap left, LongLongHashMap right) {
+        if (left.size() < right.size()) {
+            right.addAll(left);
+            return right;
+        }
+        left.addAll(right);
+        return left;
+    }
+
+    private static LongObjectHashMap<IntSummaryStatistics> combineAll(
+            LongObjectHashMap<IntSummaryStatistics> left, LongObjectHashMap<IntSummaryStatistics> right) {
+        right.forEach((key, statistics) -> left.computeIfAbsent(key, k -> new IntSummaryStatistics()).combine(statistics));
+        return left;
+    }
+}
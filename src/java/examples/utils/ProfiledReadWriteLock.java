@@ -0,0 +1,157 @@
+package examples.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class ProfiledReadWriteLock implements ReadWriteLock {
+    //Drop-in replacement for a ReentrantReadWriteLock used through the ReadWriteLock interface.
+    //Reports to LockProfiler under "<name>.read" and "<name>.write", so read and write contention
+    //show up separately.
+
+    private final ReentrantReadWriteLock lock;
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    public ProfiledReadWriteLock(String name) {
+        this(name, false, LockProfiler.DEFAULT_SAMPLE_RATE);
+    }
+
+    public ProfiledReadWriteLock(String name, boolean fair, int sampleRate) {
+        lock = new ReentrantReadWriteLock(fair);
+        //read locks are shared, so the sampled hold start is kept per thread
+        ThreadLocal<long[]> readHoldStart = ThreadLocal.withInitial(() -> new long[1]);
+        readLock = new ProfiledLock(lock.readLock(), LockProfiler.register(name + ".read", sampleRate), "read") {
+            @Override
+            int holdCount() {
+                return lock.getReadHoldCount();
+            }
+
+            @Override
+            long[] holdStart() {
+                return readHoldStart.get();
+            }
+        };
+        long[] writeHoldStart = new long[1];
+        writeLock = new ProfiledLock(lock.writeLock(), LockProfiler.register(name + ".write", sampleRate), "write") {
+            @Override
+            int holdCount() {
+                return lock.getWriteHoldCount();
+            }
+
+            @Override
+            long[] holdStart() {
+                return writeHoldStart;
+            }
+        };
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    private abstract class ProfiledLock implements Lock {
+        private final Lock delegate;
+        private final LockProfiler.LockStats stats;
+        private final String mode;
+
+        ProfiledLock(Lock delegate, LockProfiler.LockStats stats, String mode) {
+            this.delegate = delegate;
+            this.stats = stats;
+            this.mode = mode;
+        }
+
+        //holds of this mode by the current thread
+        abstract int holdCount();
+
+        abstract long[] holdStart();
+
+        @Override
+        public void lock() {
+            if (!tryFastPath()) {
+                LockProfiler.ContentionEvent event = stats.startWait();
+                delegate.lock();
+                stats.endWait(event, mode, true);
+            }
+            acquired();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (!tryFastPath()) {
+                LockProfiler.ContentionEvent event = stats.startWait();
+                try {
+                    delegate.lockInterruptibly();
+                } catch (InterruptedException e) {
+                    stats.endWait(event, mode, false);
+                    throw e;
+                }
+                stats.endWait(event, mode, true);
+            }
+            acquired();
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (delegate.tryLock()) {
+                acquired();
+                return true;
+            }
+            stats.failed();
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            if (!tryFastPath()) {
+                LockProfiler.ContentionEvent event = stats.startWait();
+                boolean locked = false;
+                try {
+                    locked = delegate.tryLock(time, unit);
+                } finally {
+                    stats.endWait(event, mode, locked);
+                }
+                if (!locked) {
+                    return false;
+                }
+            }
+            acquired();
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            long[] start = holdStart();
+            if (holdCount() == 1 && start[0] != 0L) {
+                stats.released(start[0]);
+                start[0] = 0L;
+            }
+            delegate.unlock();
+        }
+
+        @Override
+        public Condition newCondition() {
+            return delegate.newCondition();
+        }
+
+        //a fair lock must not barge past queued threads
+        private boolean tryFastPath() {
+            return (!lock.isFair() || !lock.hasQueuedThreads()) && delegate.tryLock();
+        }
+
+        private void acquired() {
+            long start = stats.acquired();
+            if (holdCount() == 1) {
+                holdStart()[0] = start;
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package examples.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ProfiledReentrantLock extends ReentrantLock {
+    //Drop-in replacement for ReentrantLock that reports to LockProfiler under the given name.
+    //Contention is detected with a tryLock() first, only when that fails the acquisition is timed.
+    //Reentrant acquisitions count as acquisitions, the hold time is measured from the outermost lock()
+    //to the matching unlock().
+
+    private static final long serialVersionUID = 1L;
+
+    private final LockProfiler.LockStats stats;
+    //start of the sampled outermost hold, guarded by the lock itself
+    private long holdStart;
+
+    public ProfiledReentrantLock(String name) {
+        this(name, false, LockProfiler.DEFAULT_SAMPLE_RATE);
+    }
+
+    public ProfiledReentrantLock(String name, boolean fair, int sampleRate) {
+        super(fair);
+        stats = LockProfiler.register(name, sampleRate);
+    }
+
+    @Override
+    public void lock() {
+        if (!tryFastPath()) {
+            LockProfiler.ContentionEvent event = stats.startWait();
+            super.lock();
+            stats.endWait(event, "lock", true);
+        }
+        acquired();
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (!tryFastPath()) {
+            LockProfiler.ContentionEvent event = stats.startWait();
+            try {
+                super.lockInterruptibly();
+            } catch (InterruptedException e) {
+                stats.endWait(event, "lock", false);
+                throw e;
+            }
+            stats.endWait(event, "lock", true);
+        }
+        acquired();
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (super.tryLock()) {
+            acquired();
+            return true;
+        }
+        stats.failed();
+        return false;
+    }
+
+    @Override
+    public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!tryFastPath()) {
+            LockProfiler.ContentionEvent event = stats.startWait();
+            boolean locked = false;
+            try {
+                locked = super.tryLock(timeout, unit);
+            } finally {
+                stats.endWait(event, "lock", locked);
+            }
+            if (!locked) {
+                return false;
+            }
+        }
+        acquired();
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        if (getHoldCount() == 1 && holdStart != 0L) {
+            stats.released(holdStart);
+            holdStart = 0L;
+        }
+        super.unlock();
+    }
+
+    //a fair lock must not barge past queued threads
+    private boolean tryFastPath() {
+        return (!isFair() || !hasQueuedThreads()) && super.tryLock();
+    }
+
+    private void acquired() {
+        long start = stats.acquired();
+        if (getHoldCount() == 1) {
+            holdStart = start;
+        }
+    }
+}
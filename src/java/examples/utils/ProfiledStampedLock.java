@@ -0,0 +1,254 @@
+package examples.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+public class ProfiledStampedLock extends StampedLock {
+    //Drop-in replacement for StampedLock that reports to LockProfiler under "<name>.read" and "<name>.write".
+    //Optimistic reads don't lock anything, but validate() failures are counted on the read statistics:
+    //many of them mean the optimistic read keeps falling back to a real read lock.
+    //
+    //A read stamp may be released by another thread than the one that took it. The sampled hold time of
+    //a read lock is kept per thread, so such a hold is not measured. The asReadLock()/asWriteLock() views
+    //lock through the profiled methods but unlock around them, their hold times aren't measured either.
+    //Conversions end the hold of the mode they leave and start one in the mode they enter.
+
+    private static final long serialVersionUID = 1L;
+
+    private final LockProfiler.LockStats readStats;
+    private final LockProfiler.LockStats writeStats;
+    private final ThreadLocal<long[]> readHoldStart = ThreadLocal.withInitial(() -> new long[1]);
+    //guarded by the write lock
+    private long writeHoldStart;
+
+    public ProfiledStampedLock(String name) {
+        this(name, LockProfiler.DEFAULT_SAMPLE_RATE);
+    }
+
+    public ProfiledStampedLock(String name, int sampleRate) {
+        readStats = LockProfiler.register(name + ".read", sampleRate);
+        writeStats = LockProfiler.register(name + ".write", sampleRate);
+    }
+
+    @Override
+    public long writeLock() {
+        long stamp = super.tryWriteLock();
+        if (stamp == 0L) {
+            LockProfiler.ContentionEvent event = writeStats.startWait();
+            stamp = super.writeLock();
+            writeStats.endWait(event, "write", true);
+        }
+        writeAcquired();
+        return stamp;
+    }
+
+    @Override
+    public long tryWriteLock() {
+        long stamp = super.tryWriteLock();
+        if (stamp != 0L) {
+            writeAcquired();
+        } else {
+            writeStats.failed();
+        }
+        return stamp;
+    }
+
+    @Override
+    public long tryWriteLock(long time, TimeUnit unit) throws InterruptedException {
+        long stamp = super.tryWriteLock();
+        if (stamp == 0L) {
+            LockProfiler.ContentionEvent event = writeStats.startWait();
+            try {
+                stamp = super.tryWriteLock(time, unit);
+            } finally {
+                writeStats.endWait(event, "write", stamp != 0L);
+            }
+            if (stamp == 0L) {
+                return 0L;
+            }
+        }
+        writeAcquired();
+        return stamp;
+    }
+
+    @Override
+    public long writeLockInterruptibly() throws InterruptedException {
+        long stamp = super.tryWriteLock();
+        if (stamp == 0L) {
+            LockProfiler.ContentionEvent event = writeStats.startWait();
+            try {
+                stamp = super.writeLockInterruptibly();
+            } finally {
+                writeStats.endWait(event, "write", stamp != 0L);
+            }
+        }
+        writeAcquired();
+        return stamp;
+    }
+
+    @Override
+    public long readLock() {
+        long stamp = super.tryReadLock();
+        if (stamp == 0L) {
+            LockProfiler.ContentionEvent event = readStats.startWait();
+            stamp = super.readLock();
+            readStats.endWait(event, "read", true);
+        }
+        readAcquired();
+        return stamp;
+    }
+
+    @Override
+    public long tryReadLock() {
+        long stamp = super.tryReadLock();
+        if (stamp != 0L) {
+            readAcquired();
+        } else {
+            readStats.failed();
+        }
+        return stamp;
+    }
+
+    @Override
+    public long tryReadLock(long time, TimeUnit unit) throws InterruptedException {
+        long stamp = super.tryReadLock();
+        if (stamp == 0L) {
+            LockProfiler.ContentionEvent event = readStats.startWait();
+            try {
+                stamp = super.tryReadLock(time, unit);
+            } finally {
+                readStats.endWait(event, "read", stamp != 0L);
+            }
+            if (stamp == 0L) {
+                return 0L;
+            }
+        }
+        readAcquired();
+        return stamp;
+    }
+
+    @Override
+    public long readLockInterruptibly() throws InterruptedException {
+        long stamp = super.tryReadLock();
+        if (stamp == 0L) {
+            LockProfiler.ContentionEvent event = readStats.startWait();
+            try {
+                stamp = super.readLockInterruptibly();
+            } finally {
+                readStats.endWait(event, "read", stamp != 0L);
+            }
+        }
+        readAcquired();
+        return stamp;
+    }
+
+    @Override
+    public boolean validate(long stamp) {
+        boolean valid = super.validate(stamp);
+        if (!valid) {
+            readStats.failedOptimisticRead();
+        }
+        return valid;
+    }
+
+    //Converting counts as a write acquisition, a held read lock is released by it
+    @Override
+    public long tryConvertToWriteLock(long stamp) {
+        long converted = super.tryConvertToWriteLock(stamp);
+        if (converted != 0L && !isWriteLockStamp(stamp)) {
+            if (isReadLockStamp(stamp)) {
+                readReleased();
+            }
+            writeAcquired();
+        }
+        return converted;
+    }
+
+    @Override
+    public long tryConvertToReadLock(long stamp) {
+        if (holdsWriteLock(stamp)) {
+            writeReleased();
+        }
+        long converted = super.tryConvertToReadLock(stamp);
+        if (converted != 0L && !isReadLockStamp(stamp)) {
+            readAcquired();
+        }
+        return converted;
+    }
+
+    @Override
+    public long tryConvertToOptimisticRead(long stamp) {
+        if (holdsWriteLock(stamp)) {
+            writeReleased();
+        }
+        long converted = super.tryConvertToOptimisticRead(stamp);
+        if (converted != 0L && isReadLockStamp(stamp)) {
+            readReleased();
+        }
+        return converted;
+    }
+
+    @Override
+    public boolean tryUnlockWrite() {
+        writeReleased();
+        return super.tryUnlockWrite();
+    }
+
+    @Override
+    public boolean tryUnlockRead() {
+        boolean unlocked = super.tryUnlockRead();
+        if (unlocked) {
+            readReleased();
+        }
+        return unlocked;
+    }
+
+    @Override
+    public void unlockWrite(long stamp) {
+        writeReleased();
+        super.unlockWrite(stamp);
+    }
+
+    @Override
+    public void unlockRead(long stamp) {
+        readReleased();
+        super.unlockRead(stamp);
+    }
+
+    @Override
+    public void unlock(long stamp) {
+        if (isWriteLockStamp(stamp)) {
+            unlockWrite(stamp);
+        } else {
+            unlockRead(stamp);
+        }
+    }
+
+    //the write hold has to be ended while the lock is still held, writeHoldStart is only guarded by it
+    private boolean holdsWriteLock(long stamp) {
+        return isWriteLockStamp(stamp) && super.validate(stamp);
+    }
+
+    private void writeAcquired() {
+        writeHoldStart = writeStats.acquired();
+    }
+
+    private void writeReleased() {
+        if (isWriteLocked() && writeHoldStart != 0L) {
+            writeStats.released(writeHoldStart);
+            writeHoldStart = 0L;
+        }
+    }
+
+    private void readAcquired() {
+        readHoldStart.get()[0] = readStats.acquired();
+    }
+
+    private void readReleased() {
+        long[] start = readHoldStart.get();
+        if (start[0] != 0L) {
+            readStats.released(start[0]);
+            start[0] = 0L;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package examples.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Collector;
+
+public class RopeJoiner {
+    //StringJoiner for large joins (CSV files, reports of several MB).
+    //StringJoiner / Collectors.joining() append into a StringBuilder that doubles its array whenever it's full,
+    //and merging the joiners of a parallel stream copies the right one into the left one, again at every level.
+    //p.getName().toUpperCase() in the accumulator creates a String per element only to copy it right away.
+    //
+    //Here the text goes into fixed size char chunks that come from a shared pool. Upper/lower casing is done
+    //while copying the chars into the chunk, merge() links the full chunks of the other joiner instead of copying
+    //them (small ones are copied into the free space of the last chunk, so the leaves of a parallel stream don't
+    //leave a mostly empty chunk each), and as the length is known, toString() copies everything once into an
+    //exactly sized builder.
+    //writeTo() writes the chunks to a Writer without creating the String at all
+    //(wrap a channel with Channels.newWriter()). release() puts the chunks back into the pool.
+    //
+    //Not thread safe, like StringJoiner.
+    //
+    //  String names = persons.stream().map(Person::getName).collect(RopeJoiner.joining(" | ", "", "", Case.UPPER));
+
+    public enum Case {
+        AS_IS,
+        //ASCII chars are mapped inline, text with other chars goes through String.toUpperCase(Locale.ROOT)
+        UPPER,
+        //same with toLowerCase(Locale.ROOT)
+        LOWER
+    }
+
+    //8k chars, 16kb per chunk
+    public static final int CHUNK_SIZE = 8 * 1024;
+    //up to 4mb of chunks are kept for the next joins
+    private static final int MAX_POOLED_CHUNKS = 256;
+    private static final BlockingQueue<char[]> POOL = new ArrayBlockingQueue<>(MAX_POOLED_CHUNKS);
+
+    private final char[] delimiter;
+    private final String prefix;
+    private final String suffix;
+    private final Case textCase;
+    private char[][] chunks = new char[4][];
+    //chars used in each chunk
+    private int[] used = new int[4];
+    private int count;
+    //chars in the chunks, without prefix and suffix
+    private int length;
+    private int elements;
+
+    public RopeJoiner(CharSequence delimiter) {
+        this(delimiter, "", "", Case.AS_IS);
+    }
+
+    public RopeJoiner(CharSequence delimiter, CharSequence prefix, CharSequence suffix, Case textCase) {
+        this.delimiter = delimiter.toString().toCharArray();
+        this.prefix = prefix.toString();
+        this.suffix = suffix.toString();
+        this.textCase = textCase;
+    }
+
+    //Like Collectors.joining(), the String is built in the finisher and the chunks go back to the pool
+    public static Collector<CharSequence, ?, String> joining(CharSequence delimiter) {
+        return joining(delimiter, "", "", Case.AS_IS);
+    }
+
+    public static Collector<CharSequence, ?, String> joining(CharSequence delimiter, CharSequence prefix,
+            CharSequence suffix, Case textCase) {
+        return Collector.of(
+                () -> new RopeJoiner(delimiter, prefix, suffix, textCase),
+                RopeJoiner::add,
+                RopeJoiner::merge,
+                joiner -> {
+                    String result = joiner.toString();
+                    joiner.release();
+                    return result;
+                });
+    }
+
+    //Returns the joiner itself, to write it somewhere with writeTo(). Call release() afterwards.
+    public static Collector<CharSequence, ?, RopeJoiner> toJoiner(CharSequence delimiter, CharSequence prefix,
+            CharSequence suffix, Case textCase) {
+        return Collector.of(
+                () -> new RopeJoiner(delimiter, prefix, suffix, textCase),
+                RopeJoiner::add,
+                RopeJoiner::merge,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public RopeJoiner add(CharSequence text) {
+        if (text == null) {
+            text = "null";
+        }
+        int n = text.length();
+        int delimiterLength = elements > 0 ? delimiter.length : 0;
+        //the element goes into one chunk, so it can be written again if the fast path doesn't work out
+        reserve(delimiterLength + n);
+        char[] chunk = chunks[count - 1];
+        int start = used[count - 1];
+        System.arraycopy(delimiter, 0, chunk, start, delimiterLength);
+        int pos = start + delimiterLength;
+        if (textCase == Case.AS_IS) {
+            if (text instanceof String) {
+                ((String) text).getChars(0, n, chunk, pos);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    chunk[pos + i] = text.charAt(i);
+                }
+            }
+        } else {
+            boolean upper = textCase == Case.UPPER;
+            for (int i = 0; i < n; i++) {
+                char c = text.charAt(i);
+                if (c >= 0x80) {
+                    //not ASCII, the mapping may change the length (German sharp s -> SS) or depend on the neighbours
+                    used[count - 1] = pos;
+                    length += delimiterLength;
+                    String mapped = upper ? text.toString().toUpperCase(Locale.ROOT) : text.toString().toLowerCase(Locale.ROOT);
+                    append(mapped);
+                    elements++;
+                    return this;
+                }
+                if (upper) {
+                    chunk[pos + i] = c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+                } else {
+                    chunk[pos + i] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+                }
+            }
+        }
+        used[count - 1] = pos + n;
+        length += delimiterLength + n;
+        elements++;
+        return this;
+    }
+
+    //Appends the elements of other, as StringJoiner.merge() does (its prefix and suffix are left out).
+    //The chunks of other are moved over without copying, unless they fit into the free space of the last chunk:
+    //then they're copied and go back to the pool. other is empty afterwards.
+    public RopeJoiner merge(RopeJoiner other) {
+        if (other == this || other.elements == 0) {
+            return this;
+        }
+        if (elements > 0) {
+            reserve(delimiter.length);
+            System.arraycopy(delimiter, 0, chunks[count - 1], used[count - 1], delimiter.length);
+            used[count - 1] += delimiter.length;
+            length += delimiter.length;
+        }
+        for (int i = 0; i < other.count; i++) {
+            char[] chunk = other.chunks[i];
+            int n = other.used[i];
+            if (count > 0 && chunks[count - 1].length - used[count - 1] >= n) {
+                System.arraycopy(chunk, 0, chunks[count - 1], used[count - 1], n);
+                used[count - 1] += n;
+                recycle(chunk);
+            } else {
+                if (count == chunks.length) {
+                    grow(count + other.count - i);
+                }
+                chunks[count] = chunk;
+                used[count] = n;
+                count++;
+            }
+        }
+        length += other.length;
+        elements += other.elements;
+        other.clear();
+        return this;
+    }
+
+    //length of the joined text, including prefix and suffix
+    public int length() {
+        return prefix.length() + length + suffix.length();
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        writer.write(prefix);
+        for (int i = 0; i < count; i++) {
+            writer.write(chunks[i], 0, used[i]);
+        }
+        writer.write(suffix);
+    }
+
+    //Hands the chunks back to the pool, the joiner is empty afterwards and can be used again
+    public void release() {
+        for (int i = 0; i < count; i++) {
+            recycle(chunks[i]);
+        }
+        clear();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(length());
+        builder.append(prefix);
+        for (int i = 0; i < count; i++) {
+            builder.append(chunks[i], 0, used[i]);
+        }
+        return builder.append(suffix).toString();
+    }
+
+    private void append(String text) {
+        int n = text.length();
+        reserve(n);
+        text.getChars(0, n, chunks[count - 1], used[count - 1]);
+        used[count - 1] += n;
+        length += n;
+    }
+
+    //makes sure the last chunk has room for n more chars
+    private void reserve(int n) {
+        if (count > 0 && chunks[count - 1].length - used[count - 1] >= n) {
+            return;
+        }
+        char[] chunk = null;
+        if (n <= CHUNK_SIZE) {
+            chunk = POOL.poll();
+        }
+        if (chunk == null) {
+            chunk = new char[Math.max(CHUNK_SIZE, n)];
+        }
+        if (count == chunks.length) {
+            grow(count + 1);
+        }
+        chunks[count] = chunk;
+        used[count] = 0;
+        count++;
+    }
+
+    private static void recycle(char[] chunk) {
+        //larger chunks of single long elements aren't pooled
+        if (chunk.length == CHUNK_SIZE) {
+            POOL.offer(chunk);
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, chunks.length * 2);
+        char[][] newChunks = new char[capacity][];
+        System.arraycopy(chunks, 0, newChunks, 0, count);
+        chunks = newChunks;
+        int[] newUsed = new int[capacity];
+        System.arraycopy(used, 0, newUsed, 0, count);
+        used = newUsed;
+    }
+
+    private void clear() {
+        for (int i = 0; i < count; i++) {
+            chunks[i] = null;
+        }
+        count = 0;
+        length = 0;
+        elements = 0;
+    }
+}
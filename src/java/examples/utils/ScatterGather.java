@@ -0,0 +1,241 @@
+package examples.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class ScatterGather {
+    //invokeAll() waits for every task, invokeAny() returns only the fastest one. For a fan-out query
+    //we usually want "whatever is done within 50 ms": invokeAll(tasks, timeout) here returns the results
+    //that came in before the deadline, marks the rest TIMED_OUT and cancels them.
+    //
+    //Hedging: the latencies of successful calls are recorded. Once there are enough of them, a call that's
+    //still running after the hedge percentile (e.g. p95) gets a duplicate, the first copy to succeed wins
+    //and the other one is cancelled. So a single slow backend doesn't hold up the whole batch.
+    //Only hedge idempotent calls, a hedged call may run twice.
+    //
+    //All the waiting happens on the calling thread, using an ExecutorCompletionService.
+
+    public enum Status {
+        COMPLETED, FAILED, TIMED_OUT
+    }
+
+    public static class Outcome<T> {
+        private final Status status;
+        private final T value;
+        private final Throwable failure;
+        private final boolean hedged;
+
+        Outcome(Status status, T value, Throwable failure, boolean hedged) {
+            this.status = status;
+            this.value = value;
+            this.failure = failure;
+            this.hedged = hedged;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public boolean isCompleted() {
+            return status == Status.COMPLETED;
+        }
+
+        //the result of a COMPLETED call, otherwise null
+        public T getValue() {
+            return value;
+        }
+
+        //the exception of a FAILED call, otherwise null
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        //true if a duplicate of the call was sent
+        public boolean isHedged() {
+            return hedged;
+        }
+
+        @Override
+        public String toString() {
+            switch (status) {
+                case COMPLETED:
+                    return "COMPLETED(" + value + ")";
+                case FAILED:
+                    return "FAILED(" + failure + ")";
+                default:
+                    return "TIMED_OUT";
+            }
+        }
+    }
+
+    public static class Result<T> {
+        private final List<Outcome<T>> outcomes;
+
+        Result(List<Outcome<T>> outcomes) {
+            this.outcomes = Collections.unmodifiableList(outcomes);
+        }
+
+        //one outcome per task, in the order of the tasks
+        public List<Outcome<T>> getOutcomes() {
+            return outcomes;
+        }
+
+        //values of the completed calls, in the order of the tasks
+        public List<T> getValues() {
+            return outcomes.stream()
+                    .filter(Outcome::isCompleted)
+                    .map(Outcome::getValue)
+                    .collect(Collectors.toList());
+        }
+
+        public long count(Status status) {
+            return outcomes.stream().filter(outcome -> outcome.getStatus() == status).count();
+        }
+
+        @Override
+        public String toString() {
+            return outcomes.toString();
+        }
+    }
+
+    //don't hedge before this many latencies were recorded
+    private static final int MIN_SAMPLES = 20;
+
+    private final ExecutorService executor;
+    private final double hedgePercentile;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    //without hedging
+    public ScatterGather(ExecutorService executor) {
+        this(executor, 0.0);
+    }
+
+    //hedgePercentile between 0 and 100, e.g. 95, or 0 to never hedge
+    public ScatterGather(ExecutorService executor, double hedgePercentile) {
+        if (hedgePercentile < 0.0 || hedgePercentile >= 100.0) {
+            throw new IllegalArgumentException("hedgePercentile must be in [0, 100)");
+        }
+        this.executor = executor;
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public <T> Result<T> invokeAll(List<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long hedgeDelay = hedgeDelayNanos();
+        CompletionService<T> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<T>, Call<T>> calls = new IdentityHashMap<>();
+        List<Call<T>> all = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            Call<T> call = new Call<>(tasks.get(i));
+            all.add(call);
+            call.primary = completionService.submit(call.task);
+            calls.put(call.primary, call);
+        }
+        int pending = all.size();
+        try {
+            while (pending > 0) {
+                long now = System.nanoTime();
+                if (now - deadline >= 0) {
+                    break;
+                }
+                long wakeUp = deadline;
+                if (hedgeDelay > 0) {
+                    for (Call<T> call : all) {
+                        if (call.outcome != null || call.hedge != null) {
+                            continue;
+                        }
+                        if (now - call.start >= hedgeDelay) {
+                            call.hedge = completionService.submit(call.task);
+                            call.hedgeStart = now;
+                            calls.put(call.hedge, call);
+                        } else if (call.start + hedgeDelay - wakeUp < 0) {
+                            wakeUp = call.start + hedgeDelay;
+                        }
+                    }
+                }
+                Future<T> done = completionService.poll(wakeUp - now, TimeUnit.NANOSECONDS);
+                if (done != null && complete(calls.get(done), done)) {
+                    pending--;
+                }
+            }
+        } finally {
+            //whatever is still running is too late, or the caller was interrupted
+            for (Call<T> call : all) {
+                call.cancel();
+            }
+        }
+        List<Outcome<T>> outcomes = new ArrayList<>(all.size());
+        for (Call<T> call : all) {
+            outcomes.add(call.outcome != null ? call.outcome : new Outcome<>(Status.TIMED_OUT, null, null, call.hedge != null));
+        }
+        return new Result<>(outcomes);
+    }
+
+    //Recorded latencies of successful calls, in nanoseconds
+    public LatencyHistogram getLatencies() {
+        return latencies.copy();
+    }
+
+    //Returns true once the call has its outcome
+    private <T> boolean complete(Call<T> call, Future<T> done) throws InterruptedException {
+        if (call.outcome != null) {
+            //the other copy of a hedged call, already decided
+            return false;
+        }
+        long start = done == call.primary ? call.start : call.hedgeStart;
+        try {
+            T value = done.get();
+            latencies.record(System.nanoTime() - start);
+            call.outcome = new Outcome<>(Status.COMPLETED, value, null, call.hedge != null);
+        } catch (ExecutionException e) {
+            Future<T> other = done == call.primary ? call.hedge : call.primary;
+            if (other != null && !call.failedOnce) {
+                //the other copy may still succeed
+                call.failedOnce = true;
+                return false;
+            }
+            call.outcome = new Outcome<>(Status.FAILED, null, e.getCause(), call.hedge != null);
+        }
+        call.cancel();
+        return true;
+    }
+
+    private long hedgeDelayNanos() {
+        if (hedgePercentile == 0.0 || latencies.getCount() < MIN_SAMPLES) {
+            return 0L;
+        }
+        return Math.max(1L, latencies.getValueAtPercentile(hedgePercentile));
+    }
+
+    private static class Call<T> {
+        private final Callable<T> task;
+        private final long start = System.nanoTime();
+        private Future<T> primary;
+        private Future<T> hedge;
+        private long hedgeStart;
+        private boolean failedOnce;
+        private Outcome<T> outcome;
+
+        Call(Callable<T> task) {
+            this.task = task;
+        }
+
+        void cancel() {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+}
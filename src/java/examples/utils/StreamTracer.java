@@ -0,0 +1,369 @@
+package examples.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+public class StreamTracer {
+    //Shows what each stage of a stream pipeline does, without println calls in the lambdas:
+    //
+    //  List<String> result = StreamTracer.trace("orders", orders.stream())
+    //          .filter(...)
+    //          .map(...)
+    //          .collect(Collectors.toList());
+    //  System.out.println(StreamTracer.report());
+    //
+    //trace() wraps the stream, every intermediate operation called on it becomes a stage ("1 filter", "2 map", ...)
+    //whose function is wrapped to count the elements going in and out, the time spent in the function and the
+    //threads that ran it. Stages without a function (distinct, limit, skip) only count elements, sorted() times
+    //the comparator. When the terminal operation returns, the counts of the run are added to the statistics
+    //of the pipeline name, so a pipeline that runs many times is summed up under one name.
+    //
+    //Counting is a LongAdder increment per element and stage. The time and the thread are taken for a sample
+    //of the calls (1 in sampleRate), the time of a stage is extrapolated from the sample.
+    //Each finished run is also recorded as JFR events (examples.StreamStage), one per stage.
+    //
+    //mapToInt() and the like are traced, the operations on the IntStream, ... after them aren't stages of their own,
+    //but its terminal operation finishes the run and mapToObj()/boxed() go back to a traced stream.
+    //iterator() and spliterator() don't finish a run, so their runs aren't recorded.
+    //Like the plain stream, count() may not run the stages at all when it can tell the size without them.
+
+    //time and thread are taken for 1 in DEFAULT_SAMPLE_RATE calls
+    public static final int DEFAULT_SAMPLE_RATE = 16;
+
+    private static final ConcurrentMap<String, PipelineStats> PIPELINES = new ConcurrentHashMap<>();
+
+    @Name("examples.StreamStage")
+    @Label("Stream Stage")
+    @Description("A stage of a traced stream pipeline, the event spans the terminal operation")
+    @Category({"Examples", "Streams"})
+    static class StageEvent extends Event {
+        @Label("Pipeline")
+        String pipeline;
+        @Label("Stage")
+        String stage;
+        @Label("Elements In")
+        long elementsIn;
+        @Label("Elements Out")
+        long elementsOut;
+        @Label("Time In Stage")
+        @Timespan(Timespan.NANOSECONDS)
+        long stageTime;
+        @Label("Threads")
+        int threads;
+    }
+
+    public static class StageSnapshot {
+        private final String name;
+        private final long elementsIn;
+        private final long elementsOut;
+        private final long nanos;
+        private final Set<String> threads;
+
+        StageSnapshot(String name, long elementsIn, long elementsOut, long nanos, Set<String> threads) {
+            this.name = name;
+            this.elementsIn = elementsIn;
+            this.elementsOut = elementsOut;
+            this.nanos = nanos;
+            this.threads = threads;
+        }
+
+        //position and operation, e.g. "2 filter"
+        public String getName() {
+            return name;
+        }
+
+        public long getElementsIn() {
+            return elementsIn;
+        }
+
+        public long getElementsOut() {
+            return elementsOut;
+        }
+
+        //time spent in the function of the stage (estimated from the sample), in nanoseconds
+        public long getNanos() {
+            return nanos;
+        }
+
+        //names of the threads seen in the sampled calls, sorted
+        public Set<String> getThreads() {
+            return threads;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-16s in=%d, out=%d, time=%.3f ms, threads=%d %s",
+                    name, elementsIn, elementsOut, nanos / 1_000_000.0, threads.size(), threads);
+        }
+    }
+
+    public static class Snapshot {
+        private final String name;
+        private final LatencyHistogram runTimes;
+        private final List<StageSnapshot> stages;
+
+        Snapshot(String name, LatencyHistogram runTimes, List<StageSnapshot> stages) {
+            this.name = name;
+            this.runTimes = runTimes;
+            this.stages = stages;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getRuns() {
+            return runTimes.getCount();
+        }
+
+        //duration of the terminal operations, in nanoseconds
+        public LatencyHistogram getRunTimes() {
+            return runTimes;
+        }
+
+        //in pipeline order
+        public List<StageSnapshot> getStages() {
+            return stages;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(name).append(": runs [").append(runTimes).append("]");
+            for (StageSnapshot stage : stages) {
+                builder.append(System.lineSeparator()).append("  ").append(stage);
+            }
+            return builder.toString();
+        }
+    }
+
+    //A stage of one run of a pipeline
+    static class Stage {
+        final String name;
+        private final int sampleRate;
+        //calls of the function, the elements going in unless countsIn
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder in = new LongAdder();
+        private final LongAdder out = new LongAdder();
+        private final boolean countsIn;
+        private final boolean countsOut;
+        private final LongAdder sampledCalls = new LongAdder();
+        private final LongAdder sampledNanos = new LongAdder();
+        private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        Stage(String name, int sampleRate, boolean countsIn, boolean countsOut) {
+            this.name = name;
+            this.sampleRate = sampleRate;
+            this.countsIn = countsIn;
+            this.countsOut = countsOut;
+        }
+
+        //Returns the start time if this call is sampled, otherwise 0
+        long enter() {
+            calls.increment();
+            if (sampleRate <= 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0) {
+                addThread();
+                return System.nanoTime() | 1L;
+            }
+            return 0L;
+        }
+
+        void exit(long start) {
+            if (start != 0L) {
+                sampledNanos.add(System.nanoTime() - start);
+                sampledCalls.increment();
+            }
+        }
+
+        //an element reached a stage that counts its input itself
+        void arrived() {
+            in.increment();
+            if (sampleRate <= 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0) {
+                addThread();
+            }
+        }
+
+        void passed() {
+            out.increment();
+        }
+
+        private void addThread() {
+            String thread = Thread.currentThread().getName();
+            if (!threads.contains(thread)) {
+                threads.add(thread);
+            }
+        }
+
+        long elementsIn() {
+            return countsIn ? in.sum() : calls.sum();
+        }
+
+        long elementsOut() {
+            return countsOut ? out.sum() : elementsIn();
+        }
+
+        long nanos() {
+            long sampled = sampledCalls.sum();
+            return sampled == 0 ? 0L : (long) ((double) sampledNanos.sum() * calls.sum() / sampled);
+        }
+    }
+
+    //One traced stream, from trace() to the end of its terminal operation
+    static class Run {
+        private final PipelineStats pipeline;
+        private final int sampleRate;
+        //added while the pipeline is built, before the terminal operation starts
+        private final List<Stage> stages = new ArrayList<>();
+        private StageEvent[] events;
+
+        Run(PipelineStats pipeline, int sampleRate) {
+            this.pipeline = pipeline;
+            this.sampleRate = sampleRate;
+        }
+
+        Stage stage(String operation, boolean countsIn, boolean countsOut) {
+            Stage stage = new Stage((stages.size() + 1) + " " + operation, sampleRate, countsIn, countsOut);
+            stages.add(stage);
+            return stage;
+        }
+
+        //runs the terminal operation of the stream, the run is recorded when it returns
+        <R> R terminal(Supplier<R> operation) {
+            start();
+            long start = System.nanoTime();
+            try {
+                return operation.get();
+            } finally {
+                finish(System.nanoTime() - start);
+            }
+        }
+
+        void start() {
+            StageEvent[] events = new StageEvent[stages.size()];
+            for (int i = 0; i < events.length; i++) {
+                events[i] = new StageEvent();
+                if (!events[i].isEnabled()) {
+                    return;
+                }
+                events[i].begin();
+            }
+            this.events = events;
+        }
+
+        void finish(long nanos) {
+            pipeline.add(stages, nanos);
+            if (events == null) {
+                return;
+            }
+            for (int i = 0; i < events.length; i++) {
+                StageEvent event = events[i];
+                event.end();
+                if (event.shouldCommit()) {
+                    Stage stage = stages.get(i);
+                    event.pipeline = pipeline.name;
+                    event.stage = stage.name;
+                    event.elementsIn = stage.elementsIn();
+                    event.elementsOut = stage.elementsOut();
+                    event.stageTime = stage.nanos();
+                    event.threads = stage.threads.size();
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    //The runs of a pipeline name added up
+    static class PipelineStats {
+        final String name;
+        private final LatencyHistogram runTimes = new LatencyHistogram();
+        //by stage name, in pipeline order
+        private final Map<String, long[]> stageCounts = new TreeMap<>(StreamTracer::compareStages);
+        private final Map<String, Set<String>> stageThreads = new TreeMap<>(StreamTracer::compareStages);
+
+        PipelineStats(String name) {
+            this.name = name;
+        }
+
+        synchronized void add(List<Stage> stages, long nanos) {
+            runTimes.record(nanos);
+            for (Stage stage : stages) {
+                long[] counts = stageCounts.computeIfAbsent(stage.name, n -> new long[3]);
+                counts[0] += stage.elementsIn();
+                counts[1] += stage.elementsOut();
+                counts[2] += stage.nanos();
+                stageThreads.computeIfAbsent(stage.name, n -> new TreeSet<>()).addAll(stage.threads);
+            }
+        }
+
+        synchronized Snapshot snapshot() {
+            List<StageSnapshot> stages = new ArrayList<>();
+            stageCounts.forEach((stage, counts) -> stages.add(new StageSnapshot(stage, counts[0], counts[1], counts[2],
+                    Collections.unmodifiableSet(new TreeSet<>(stageThreads.get(stage))))));
+            return new Snapshot(name, runTimes.copy(), Collections.unmodifiableList(stages));
+        }
+
+        synchronized void reset() {
+            runTimes.reset();
+            stageCounts.clear();
+            stageThreads.clear();
+        }
+    }
+
+    public static <T> Stream<T> trace(String name, Stream<T> stream) {
+        return trace(name, stream, DEFAULT_SAMPLE_RATE);
+    }
+
+    //sampleRate 1 times every call
+    public static <T> Stream<T> trace(String name, Stream<T> stream, int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("sampleRate must be at least 1");
+        }
+        return new TracedStream<>(stream, new Run(PIPELINES.computeIfAbsent(name, PipelineStats::new), sampleRate));
+    }
+
+    //sorted by name
+    public static Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> snapshots = new TreeMap<>();
+        PIPELINES.forEach((name, stats) -> snapshots.put(name, stats.snapshot()));
+        return snapshots;
+    }
+
+    //All pipelines with one line per stage
+    public static String report() {
+        StringBuilder builder = new StringBuilder();
+        snapshot().values().forEach(snapshot -> builder.append(snapshot).append(System.lineSeparator()));
+        return builder.toString();
+    }
+
+    public static void reset() {
+        PIPELINES.values().forEach(PipelineStats::reset);
+    }
+
+    public static void remove(String name) {
+        PIPELINES.remove(name);
+    }
+
+    //"2 map" before "10 filter"
+    private static int compareStages(String stage1, String stage2) {
+        int index1 = Integer.parseInt(stage1.substring(0, stage1.indexOf(' ')));
+        int index2 = Integer.parseInt(stage2.substring(0, stage2.indexOf(' ')));
+        return index1 != index2 ? Integer.compare(index1, index2) : stage1.compareTo(stage2);
+    }
+}
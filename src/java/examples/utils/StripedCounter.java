@@ -0,0 +1,181 @@
+package examples.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+public class StripedCounter {
+    //synchronized increment() fixes the lost updates of MainSynchronization but makes every thread
+    //wait for the same monitor, and a single AtomicLong makes every core fight for the same cache line.
+    //Like LongAdder the count is spread over cells, one per core, each on its own cache line.
+    //A thread sticks to its cell and only moves to another one when it sees contention,
+    //so increments from different cores don't touch the same memory. Reading the value sums up the cells.
+    //
+    //On top of LongAdder this keeps samples of the total to report the rate over a sliding window,
+    //and sumThenReset() doesn't lose increments that race with the reset.
+
+    public static class Snapshot {
+        private final long count;
+        private final long total;
+        private final double ratePerSecond;
+
+        Snapshot(long count, long total, double ratePerSecond) {
+            this.count = count;
+            this.total = total;
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        //current value of the counter
+        public long getCount() {
+            return count;
+        }
+
+        //everything counted since creation or the last reset(), including what sumThenReset() took out
+        public long getTotal() {
+            return total;
+        }
+
+        //increments per second over the window
+        public double getRatePerSecond() {
+            return ratePerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot [count=" + count + ", total=" + total + ", ratePerSecond=" + ratePerSecond + "]";
+        }
+    }
+
+    //Padding on both sides keeps two cells (or a cell and some other object) off the same cache line.
+    //Padding fields are declared in super classes because the JVM doesn't reorder fields across classes.
+    static class CellLeftPadding {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    static class CellValue extends CellLeftPadding {
+        volatile long value;
+    }
+
+    static class Cell extends CellValue {
+        long p11, p12, p13, p14, p15, p16, p17;
+    }
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(CellValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    //Each thread's current cell index, changed when the thread hits contention on its cell
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> new int[]{ThreadLocalRandom.current().nextInt() | 1});
+
+    public static final long DEFAULT_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+    //at most this many samples are kept per window, no matter how often snapshot() is called
+    private static final int SAMPLES_PER_WINDOW = 16;
+
+    private final Cell[] cells;
+    private final int mask;
+    private final long windowNanos;
+
+    //samples of (nanoTime, total) for the rate, guarded by this
+    private final Deque<long[]> samples = new ArrayDeque<>();
+    private long drained;
+
+    public StripedCounter() {
+        this(DEFAULT_WINDOW_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    public StripedCounter(long window, TimeUnit unit) {
+        int size = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+        cells = new Cell[size];
+        for (int i = 0; i < size; i++) {
+            cells[i] = new Cell();
+        }
+        mask = size - 1;
+        windowNanos = unit.toNanos(window);
+        samples.add(new long[]{System.nanoTime(), 0L});
+    }
+
+    public void increment() {
+        add(1L);
+    }
+
+    public void add(long x) {
+        int[] probe = PROBE.get();
+        Cell cell = cells[probe[0] & mask];
+        long value = cell.value;
+        if (!VALUE.compareAndSet(cell, value, value + x)) {
+            //another thread uses the same cell, move to a different one for the next increments
+            int h = probe[0];
+            h ^= h << 13;
+            h ^= h >>> 17;
+            h ^= h << 5;
+            probe[0] = h;
+            VALUE.getAndAdd(cell, x);
+        }
+    }
+
+    public long sum() {
+        long sum = 0L;
+        for (Cell cell : cells) {
+            sum += cell.value;
+        }
+        return sum;
+    }
+
+    //Returns the current value and sets the counter to zero.
+    //Every cell is swapped atomically, so increments happening at the same time are either returned or kept.
+    public synchronized long sumThenReset() {
+        long sum = 0L;
+        for (Cell cell : cells) {
+            sum += (long) VALUE.getAndSet(cell, 0L);
+        }
+        drained += sum;
+        return sum;
+    }
+
+    public synchronized Snapshot snapshot() {
+        long now = System.nanoTime();
+        long count = sum();
+        long total = drained + count;
+        if (now - samples.getLast()[0] >= windowNanos / SAMPLES_PER_WINDOW) {
+            samples.addLast(new long[]{now, total});
+        }
+        //keep the newest sample that is at least a window old as the base of the rate
+        while (samples.size() > 1) {
+            Iterator<long[]> iterator = samples.iterator();
+            iterator.next();
+            if (now - iterator.next()[0] < windowNanos) {
+                break;
+            }
+            samples.removeFirst();
+        }
+        long[] base = samples.getFirst();
+        long elapsed = now - base[0];
+        double rate = elapsed > 0 ? (total - base[1]) * 1e9 / elapsed : 0.0;
+        return new Snapshot(count, total, rate);
+    }
+
+    //Sets the counter back to zero and forgets the rate samples
+    public synchronized void reset() {
+        for (Cell cell : cells) {
+            VALUE.setVolatile(cell, 0L);
+        }
+        drained = 0L;
+        samples.clear();
+        samples.add(new long[]{System.nanoTime(), 0L});
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+}
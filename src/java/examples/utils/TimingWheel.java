@@ -0,0 +1,339 @@
+package examples.utils;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+public class TimingWheel implements Closeable {
+    //Scheduler for lots of timeouts that are mostly cancelled before they fire (request timeouts, retries).
+    //ScheduledThreadPoolExecutor keeps its tasks in a heap: O(log n) to add and to remove a cancelled task,
+    //plus a ScheduledFutureTask per call.
+    //
+    //Here time is cut into ticks and every timeout goes into the bucket of the tick it expires in.
+    //A wheel of wheelSize buckets covers wheelSize ticks, timeouts further out go into the next wheel where
+    //a bucket covers wheelSize ticks, and so on. When a coarse bucket comes up, its timeouts are moved down
+    //into the finer wheels (cascading), so each timeout is moved at most once per level.
+    //schedule() and cancel() only put the timeout into a lock-free queue and return, O(1). A single worker
+    //thread drains the queues, links timeouts into their bucket (a doubly linked list, so removal is O(1) too)
+    //and runs what expires on every tick.
+    //
+    //Timeouts fire at their tick, never early but up to one tick late, so pick a tick that's fine as precision.
+    //Tasks run on the worker thread unless an executor is given, so keep them short.
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    public class Timeout {
+        private final Runnable task;
+        //nanoseconds since the wheel started
+        private long deadline;
+        private final long period;
+        private final AtomicInteger state = new AtomicInteger(INIT);
+        private final AtomicInteger overruns = new AtomicInteger();
+        //guarded by the worker thread
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        Timeout(Runnable task, long deadline, long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        //Returns false if the timeout already expired or was cancelled. A fixed rate task is not run again.
+        public boolean cancel() {
+            if (!state.compareAndSet(INIT, CANCELLED)) {
+                return false;
+            }
+            cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        //a one-off timeout that ran, or a fixed rate task that stopped because it threw
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        //Fixed rate tasks only: how many runs were skipped because the previous run took longer than the period
+        public int getOverruns() {
+            return overruns.get();
+        }
+
+        //Runs on the worker thread, whatever goes wrong with this timeout must not stop the wheel
+        void expire() {
+            try {
+                if (period == 0) {
+                    if (state.compareAndSet(INIT, EXPIRED)) {
+                        executor.execute(this::runOnce);
+                    }
+                } else if (state.get() == INIT) {
+                    executor.execute(this::runPeriodic);
+                }
+            } catch (RuntimeException e) {
+                //e.g. RejectedExecutionException from an executor that was shut down: the task is dropped
+                state.compareAndSet(INIT, EXPIRED);
+                e.printStackTrace();
+            }
+        }
+
+        //Throwable, as with Runnable::run an Error of the task would otherwise end the worker thread
+        private void runOnce() {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                e.printStackTrace();
+            }
+        }
+
+        private void runPeriodic() {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                //like scheduleAtFixedRate(): a failed run stops the following ones
+                state.compareAndSet(INIT, EXPIRED);
+                e.printStackTrace();
+                return;
+            }
+            //scheduleAtFixedRate() would start the missed runs back to back,
+            //here they are skipped and counted and the task stays on its original rhythm
+            long now = now();
+            long next = deadline + period;
+            if (now >= next) {
+                long missed = (now - deadline) / period;
+                overruns.addAndGet((int) Math.min(Integer.MAX_VALUE, missed));
+                next = deadline + (missed + 1) * period;
+            }
+            deadline = next;
+            if (state.get() == INIT && !closed) {
+                pending.add(this);
+            }
+        }
+    }
+
+    //Doubly linked list of timeouts, only used by the worker thread
+    private static class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        //Unlinks all timeouts and returns the first, the rest stays reachable through next
+        Timeout clear() {
+            Timeout first = head;
+            for (Timeout timeout = head; timeout != null; timeout = timeout.next) {
+                timeout.bucket = null;
+            }
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+
+    private final long tickNanos;
+    private final int wheelBits;
+    private final int mask;
+    private final Bucket[][] wheels;
+    private final Executor executor;
+    private final long startNanos = System.nanoTime();
+    //multi-producer queues, only the worker takes from them
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean closed;
+    //next tick to process, only used by the worker thread
+    private long tick;
+
+    public TimingWheel() {
+        this(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE, Runnable::run);
+    }
+
+    //wheelSize must be a power of two. Tasks are handed to the executor, Runnable::run runs them on the worker
+    public TimingWheel(long tick, TimeUnit unit, int wheelSize, Executor executor) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("tick must be positive");
+        }
+        if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two");
+        }
+        this.tickNanos = unit.toNanos(tick);
+        this.wheelBits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        //enough levels for 2^32 ticks, later timeouts wait in the last level and are cascaded again
+        int levels = (32 + wheelBits - 1) / wheelBits;
+        this.wheels = new Bucket[levels][wheelSize];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < wheelSize; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        this.executor = executor;
+        this.worker = new Thread(this::run, "timing-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(new Timeout(task, now() + Math.max(0L, unit.toNanos(delay)), 0L));
+    }
+
+    //Runs the task every period. If a run takes longer than the period, the runs that were missed
+    //are skipped (see Timeout.getOverruns()) instead of being started one after the other
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        return add(new Timeout(task, now() + Math.max(0L, unit.toNanos(initialDelay)), unit.toNanos(period)));
+    }
+
+    //Stops the worker, timeouts that didn't expire yet are dropped
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+        //close() from a task on the worker thread: the worker stops after this tick, joining itself would hang
+        if (Thread.currentThread() != worker) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        pending.clear();
+        cancelled.clear();
+    }
+
+    private Timeout add(Timeout timeout) {
+        if (closed) {
+            throw new IllegalStateException("timing wheel is closed");
+        }
+        pending.add(timeout);
+        return timeout;
+    }
+
+    private long now() {
+        return System.nanoTime() - startNanos;
+    }
+
+    private void run() {
+        while (!closed) {
+            long wait = tick * tickNanos - now();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            removeCancelled();
+            addPending();
+            cascade();
+            expire();
+            tick++;
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void addPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.state.get() == INIT) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void place(Timeout timeout) {
+        //round up, a timeout must not fire before its deadline
+        long expiry = Math.max(tick, (timeout.deadline + tickNanos - 1) / tickNanos);
+        long delta = expiry - tick;
+        int level = 0;
+        while (level < wheels.length - 1 && delta >> (wheelBits * (level + 1)) != 0) {
+            level++;
+        }
+        if (level == wheels.length - 1 && delta >> (wheelBits * wheels.length) != 0) {
+            //beyond the last wheel: park it in the bucket that is cascaded last, it gets placed again from there
+            expiry = tick + (1L << (wheelBits * wheels.length)) - 1;
+        }
+        wheels[level][(int) (expiry >> (wheelBits * level)) & mask].add(timeout);
+    }
+
+    //Moves the timeouts of the coarse buckets that start at this tick into the finer wheels.
+    //Top down, so timeouts coming down from a higher level are cascaded further if their bucket starts now as well.
+    private void cascade() {
+        for (int level = wheels.length - 1; level > 0; level--) {
+            if ((tick & ((1L << (wheelBits * level)) - 1)) != 0) {
+                continue;
+            }
+            Timeout timeout = wheels[level][(int) (tick >> (wheelBits * level)) & mask].clear();
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                if (timeout.state.get() == INIT) {
+                    place(timeout);
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private void expire() {
+        Timeout timeout = wheels[0][(int) tick & mask].clear();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            if (timeout.deadline > tick * tickNanos) {
+                //was parked beyond the last wheel
+                place(timeout);
+            } else {
+                timeout.expire();
+            }
+            timeout = next;
+        }
+    }
+}
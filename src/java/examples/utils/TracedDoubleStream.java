@@ -0,0 +1,246 @@
+package examples.utils;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.OptionalDouble;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleToIntFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import examples.utils.StreamTracer.Run;
+
+//DoubleStream returned by TracedStream.mapToDouble() and the like: its operations aren't traced as stages,
+//but its terminal operation finishes the run of the pipeline, and mapToObj()/boxed() go back to a TracedStream
+class TracedDoubleStream implements DoubleStream {
+    private final DoubleStream delegate;
+    private final Run run;
+
+    TracedDoubleStream(DoubleStream delegate, Run run) {
+        this.delegate = delegate;
+        this.run = run;
+    }
+
+    private DoubleStream next(DoubleStream stream) {
+        return new TracedDoubleStream(stream, run);
+    }
+
+    //intermediate operations
+
+    @Override
+    public DoubleStream filter(DoublePredicate predicate) {
+        return next(delegate.filter(predicate));
+    }
+
+    @Override
+    public DoubleStream map(DoubleUnaryOperator mapper) {
+        return next(delegate.map(mapper));
+    }
+
+    @Override
+    public <U> Stream<U> mapToObj(DoubleFunction<? extends U> mapper) {
+        return new TracedStream<>(delegate.mapToObj(mapper), run);
+    }
+
+    @Override
+    public IntStream mapToInt(DoubleToIntFunction mapper) {
+        return new TracedIntStream(delegate.mapToInt(mapper), run);
+    }
+
+    @Override
+    public LongStream mapToLong(DoubleToLongFunction mapper) {
+        return new TracedLongStream(delegate.mapToLong(mapper), run);
+    }
+
+    @Override
+    public DoubleStream flatMap(DoubleFunction<? extends DoubleStream> mapper) {
+        return next(delegate.flatMap(mapper));
+    }
+
+    @Override
+    public DoubleStream distinct() {
+        return next(delegate.distinct());
+    }
+
+    @Override
+    public DoubleStream sorted() {
+        return next(delegate.sorted());
+    }
+
+    @Override
+    public DoubleStream peek(DoubleConsumer action) {
+        return next(delegate.peek(action));
+    }
+
+    @Override
+    public DoubleStream limit(long maxSize) {
+        return next(delegate.limit(maxSize));
+    }
+
+    @Override
+    public DoubleStream skip(long n) {
+        return next(delegate.skip(n));
+    }
+
+    @Override
+    public DoubleStream takeWhile(DoublePredicate predicate) {
+        return next(delegate.takeWhile(predicate));
+    }
+
+    @Override
+    public DoubleStream dropWhile(DoublePredicate predicate) {
+        return next(delegate.dropWhile(predicate));
+    }
+
+    @Override
+    public Stream<Double> boxed() {
+        return new TracedStream<>(delegate.boxed(), run);
+    }
+
+    //terminal operations
+
+    @Override
+    public void forEach(DoubleConsumer action) {
+        run.terminal(() -> {
+            delegate.forEach(action);
+            return null;
+        });
+    }
+
+    @Override
+    public void forEachOrdered(DoubleConsumer action) {
+        run.terminal(() -> {
+            delegate.forEachOrdered(action);
+            return null;
+        });
+    }
+
+    @Override
+    public double[] toArray() {
+        return run.terminal(delegate::toArray);
+    }
+
+    @Override
+    public double reduce(double identity, DoubleBinaryOperator op) {
+        return run.terminal(() -> delegate.reduce(identity, op));
+    }
+
+    @Override
+    public OptionalDouble reduce(DoubleBinaryOperator op) {
+        return run.terminal(() -> delegate.reduce(op));
+    }
+
+    @Override
+    public <R> R collect(Supplier<R> supplier, ObjDoubleConsumer<R> accumulator, BiConsumer<R, R> combiner) {
+        return run.terminal(() -> delegate.collect(supplier, accumulator, combiner));
+    }
+
+    @Override
+    public double sum() {
+        return run.terminal(delegate::sum);
+    }
+
+    @Override
+    public OptionalDouble min() {
+        return run.terminal(delegate::min);
+    }
+
+    @Override
+    public OptionalDouble max() {
+        return run.terminal(delegate::max);
+    }
+
+    @Override
+    public long count() {
+        return run.terminal(delegate::count);
+    }
+
+    @Override
+    public OptionalDouble average() {
+        return run.terminal(delegate::average);
+    }
+
+    @Override
+    public DoubleSummaryStatistics summaryStatistics() {
+        return run.terminal(delegate::summaryStatistics);
+    }
+
+    @Override
+    public boolean anyMatch(DoublePredicate predicate) {
+        return run.terminal(() -> delegate.anyMatch(predicate));
+    }
+
+    @Override
+    public boolean allMatch(DoublePredicate predicate) {
+        return run.terminal(() -> delegate.allMatch(predicate));
+    }
+
+    @Override
+    public boolean noneMatch(DoublePredicate predicate) {
+        return run.terminal(() -> delegate.noneMatch(predicate));
+    }
+
+    @Override
+    public OptionalDouble findFirst() {
+        return run.terminal(delegate::findFirst);
+    }
+
+    @Override
+    public OptionalDouble findAny() {
+        return run.terminal(delegate::findAny);
+    }
+
+    //not traced, the run is never finished
+    @Override
+    public PrimitiveIterator.OfDouble iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public Spliterator.OfDouble spliterator() {
+        return delegate.spliterator();
+    }
+
+    //BaseStream
+
+    @Override
+    public boolean isParallel() {
+        return delegate.isParallel();
+    }
+
+    @Override
+    public DoubleStream sequential() {
+        return next(delegate.sequential());
+    }
+
+    @Override
+    public DoubleStream parallel() {
+        return next(delegate.parallel());
+    }
+
+    @Override
+    public DoubleStream unordered() {
+        return next(delegate.unordered());
+    }
+
+    @Override
+    public DoubleStream onClose(Runnable closeHandler) {
+        return next(delegate.onClose(closeHandler));
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,257 @@
+package examples.utils;
+
+import java.util.IntSummaryStatistics;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import examples.utils.StreamTracer.Run;
+
+//IntStream returned by TracedStream.mapToInt() and the like: its operations aren't traced as stages,
+//but its terminal operation finishes the run of the pipeline, and mapToObj()/boxed() go back to a TracedStream
+class TracedIntStream implements IntStream {
+    private final IntStream delegate;
+    private final Run run;
+
+    TracedIntStream(IntStream delegate, Run run) {
+        this.delegate = delegate;
+        this.run = run;
+    }
+
+    private IntStream next(IntStream stream) {
+        return new TracedIntStream(stream, run);
+    }
+
+    //intermediate operations
+
+    @Override
+    public IntStream filter(IntPredicate predicate) {
+        return next(delegate.filter(predicate));
+    }
+
+    @Override
+    public IntStream map(IntUnaryOperator mapper) {
+        return next(delegate.map(mapper));
+    }
+
+    @Override
+    public <U> Stream<U> mapToObj(IntFunction<? extends U> mapper) {
+        return new TracedStream<>(delegate.mapToObj(mapper), run);
+    }
+
+    @Override
+    public LongStream mapToLong(IntToLongFunction mapper) {
+        return new TracedLongStream(delegate.mapToLong(mapper), run);
+    }
+
+    @Override
+    public DoubleStream mapToDouble(IntToDoubleFunction mapper) {
+        return new TracedDoubleStream(delegate.mapToDouble(mapper), run);
+    }
+
+    @Override
+    public IntStream flatMap(IntFunction<? extends IntStream> mapper) {
+        return next(delegate.flatMap(mapper));
+    }
+
+    @Override
+    public IntStream distinct() {
+        return next(delegate.distinct());
+    }
+
+    @Override
+    public IntStream sorted() {
+        return next(delegate.sorted());
+    }
+
+    @Override
+    public IntStream peek(IntConsumer action) {
+        return next(delegate.peek(action));
+    }
+
+    @Override
+    public IntStream limit(long maxSize) {
+        return next(delegate.limit(maxSize));
+    }
+
+    @Override
+    public IntStream skip(long n) {
+        return next(delegate.skip(n));
+    }
+
+    @Override
+    public IntStream takeWhile(IntPredicate predicate) {
+        return next(delegate.takeWhile(predicate));
+    }
+
+    @Override
+    public IntStream dropWhile(IntPredicate predicate) {
+        return next(delegate.dropWhile(predicate));
+    }
+
+    @Override
+    public LongStream asLongStream() {
+        return new TracedLongStream(delegate.asLongStream(), run);
+    }
+
+    @Override
+    public DoubleStream asDoubleStream() {
+        return new TracedDoubleStream(delegate.asDoubleStream(), run);
+    }
+
+    @Override
+    public Stream<Integer> boxed() {
+        return new TracedStream<>(delegate.boxed(), run);
+    }
+
+    //terminal operations
+
+    @Override
+    public void forEach(IntConsumer action) {
+        run.terminal(() -> {
+            delegate.forEach(action);
+            return null;
+        });
+    }
+
+    @Override
+    public void forEachOrdered(IntConsumer action) {
+        run.terminal(() -> {
+            delegate.forEachOrdered(action);
+            return null;
+        });
+    }
+
+    @Override
+    public int[] toArray() {
+        return run.terminal(delegate::toArray);
+    }
+
+    @Override
+    public int reduce(int identity, IntBinaryOperator op) {
+        return run.terminal(() -> delegate.reduce(identity, op));
+    }
+
+    @Override
+    public OptionalInt reduce(IntBinaryOperator op) {
+        return run.terminal(() -> delegate.reduce(op));
+    }
+
+    @Override
+    public <R> R collect(Supplier<R> supplier, ObjIntConsumer<R> accumulator, BiConsumer<R, R> combiner) {
+        return run.terminal(() -> delegate.collect(supplier, accumulator, combiner));
+    }
+
+    @Override
+    public int sum() {
+        return run.terminal(delegate::sum);
+    }
+
+    @Override
+    public OptionalInt min() {
+        return run.terminal(delegate::min);
+    }
+
+    @Override
+    public OptionalInt max() {
+        return run.terminal(delegate::max);
+    }
+
+    @Override
+    public long count() {
+        return run.terminal(delegate::count);
+    }
+
+    @Override
+    public OptionalDouble average() {
+        return run.terminal(delegate::average);
+    }
+
+    @Override
+    public IntSummaryStatistics summaryStatistics() {
+        return run.terminal(delegate::summaryStatistics);
+    }
+
+    @Override
+    public boolean anyMatch(IntPredicate predicate) {
+        return run.terminal(() -> delegate.anyMatch(predicate));
+    }
+
+    @Override
+    public boolean allMatch(IntPredicate predicate) {
+        return run.terminal(() -> delegate.allMatch(predicate));
+    }
+
+    @Override
+    public boolean noneMatch(IntPredicate predicate) {
+        return run.terminal(() -> delegate.noneMatch(predicate));
+    }
+
+    @Override
+    public OptionalInt findFirst() {
+        return run.terminal(delegate::findFirst);
+    }
+
+    @Override
+    public OptionalInt findAny() {
+        return run.terminal(delegate::findAny);
+    }
+
+    //not traced, the run is never finished
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public Spliterator.OfInt spliterator() {
+        return delegate.spliterator();
+    }
+
+    //BaseStream
+
+    @Override
+    public boolean isParallel() {
+        return delegate.isParallel();
+    }
+
+    @Override
+    public IntStream sequential() {
+        return next(delegate.sequential());
+    }
+
+    @Override
+    public IntStream parallel() {
+        return next(delegate.parallel());
+    }
+
+    @Override
+    public IntStream unordered() {
+        return next(delegate.unordered());
+    }
+
+    @Override
+    public IntStream onClose(Runnable closeHandler) {
+        return next(delegate.onClose(closeHandler));
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
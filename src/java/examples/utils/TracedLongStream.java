@@ -0,0 +1,252 @@
+package examples.utils;
+
+import java.util.LongSummaryStatistics;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongToIntFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import examples.utils.StreamTracer.Run;
+
+//LongStream returned by TracedStream.mapToLong() and the like: its operations aren't traced as stages,
+//but its terminal operation finishes the run of the pipeline, and mapToObj()/boxed() go back to a TracedStream
+class TracedLongStream implements LongStream {
+    private final LongStream delegate;
+    private final Run run;
+
+    TracedLongStream(LongStream delegate, Run run) {
+        this.delegate = delegate;
+        this.run = run;
+    }
+
+    private LongStream next(LongStream stream) {
+        return new TracedLongStream(stream, run);
+    }
+
+    //intermediate operations
+
+    @Override
+    public LongStream filter(LongPredicate predicate) {
+        return next(delegate.filter(predicate));
+    }
+
+    @Override
+    public LongStream map(LongUnaryOperator mapper) {
+        return next(delegate.map(mapper));
+    }
+
+    @Override
+    public <U> Stream<U> mapToObj(LongFunction<? extends U> mapper) {
+        return new TracedStream<>(delegate.mapToObj(mapper), run);
+    }
+
+    @Override
+    public IntStream mapToInt(LongToIntFunction mapper) {
+        return new TracedIntStream(delegate.mapToInt(mapper), run);
+    }
+
+    @Override
+    public DoubleStream mapToDouble(LongToDoubleFunction mapper) {
+        return new TracedDoubleStream(delegate.mapToDouble(mapper), run);
+    }
+
+    @Override
+    public LongStream flatMap(LongFunction<? extends LongStream> mapper) {
+        return next(delegate.flatMap(mapper));
+    }
+
+    @Override
+    public LongStream distinct() {
+        return next(delegate.distinct());
+    }
+
+    @Override
+    public LongStream sorted() {
+        return next(delegate.sorted());
+    }
+
+    @Override
+    public LongStream peek(LongConsumer action) {
+        return next(delegate.peek(action));
+    }
+
+    @Override
+    public LongStream limit(long maxSize) {
+        return next(delegate.limit(maxSize));
+    }
+
+    @Override
+    public LongStream skip(long n) {
+        return next(delegate.skip(n));
+    }
+
+    @Override
+    public LongStream takeWhile(LongPredicate predicate) {
+        return next(delegate.takeWhile(predicate));
+    }
+
+    @Override
+    public LongStream dropWhile(LongPredicate predicate) {
+        return next(delegate.dropWhile(predicate));
+    }
+
+    @Override
+    public DoubleStream asDoubleStream() {
+        return new TracedDoubleStream(delegate.asDoubleStream(), run);
+    }
+
+    @Override
+    public Stream<Long> boxed() {
+        return new TracedStream<>(delegate.boxed(), run);
+    }
+
+    //terminal operations
+
+    @Override
+    public void forEach(LongConsumer action) {
+        run.terminal(() -> {
+            delegate.forEach(action);
+            return null;
+        });
+    }
+
+    @Override
+    public void forEachOrdered(LongConsumer action) {
+        run.terminal(() -> {
+            delegate.forEachOrdered(action);
+            return null;
+        });
+    }
+
+    @Override
+    public long[] toArray() {
+        return run.terminal(delegate::toArray);
+    }
+
+    @Override
+    public long reduce(long identity, LongBinaryOperator op) {
+        return run.terminal(() -> delegate.reduce(identity, op));
+    }
+
+    @Override
+    public OptionalLong reduce(LongBinaryOperator op) {
+        return run.terminal(() -> delegate.reduce(op));
+    }
+
+    @Override
+    public <R> R collect(Supplier<R> supplier, ObjLongConsumer<R> accumulator, BiConsumer<R, R> combiner) {
+        return run.terminal(() -> delegate.collect(supplier, accumulator, combiner));
+    }
+
+    @Override
+    public long sum() {
+        return run.terminal(delegate::sum);
+    }
+
+    @Override
+    public OptionalLong min() {
+        return run.terminal(delegate::min);
+    }
+
+    @Override
+    public OptionalLong max() {
+        return run.terminal(delegate::max);
+    }
+
+    @Override
+    public long count() {
+        return run.terminal(delegate::count);
+    }
+
+    @Override
+    public OptionalDouble average() {
+        return run.terminal(delegate::average);
+    }
+
+    @Override
+    public LongSummaryStatistics summaryStatistics() {
+        return run.terminal(delegate::summaryStatistics);
+    }
+
+    @Override
+    public boolean anyMatch(LongPredicate predicate) {
+        return run.terminal(() -> delegate.anyMatch(predicate));
+    }
+
+    @Override
+    public boolean allMatch(LongPredicate predicate) {
+        return run.terminal(() -> delegate.allMatch(predicate));
+    }
+
+    @Override
+    public boolean noneMatch(LongPredicate predicate) {
+        return run.terminal(() -> delegate.noneMatch(predicate));
+    }
+
+    @Override
+    public OptionalLong findFirst() {
+        return run.terminal(delegate::findFirst);
+    }
+
+    @Override
+    public OptionalLong findAny() {
+        return run.terminal(delegate::findAny);
+    }
+
+    //not traced, the run is never finished
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public Spliterator.OfLong spliterator() {
+        return delegate.spliterator();
+    }
+
+    //BaseStream
+
+    @Override
+    public boolean isParallel() {
+        return delegate.isParallel();
+    }
+
+    @Override
+    public LongStream sequential() {
+        return next(delegate.sequential());
+    }
+
+    @Override
+    public LongStream parallel() {
+        return next(delegate.parallel());
+    }
+
+    @Override
+    public LongStream unordered() {
+        return next(delegate.unordered());
+    }
+
+    @Override
+    public LongStream onClose(Runnable closeHandler) {
+        return next(delegate.onClose(closeHandler));
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
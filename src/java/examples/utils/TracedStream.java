@@ -0,0 +1,393 @@
+package examples.utils;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import examples.utils.StreamTracer.Run;
+import examples.utils.StreamTracer.Stage;
+
+//Stream returned by StreamTracer.trace(): wraps the functions of the intermediate operations
+//and finishes the run when the terminal operation returns
+class TracedStream<T> implements Stream<T> {
+    private final Stream<T> delegate;
+    private final Run run;
+
+    TracedStream(Stream<T> delegate, Run run) {
+        this.delegate = delegate;
+        this.run = run;
+    }
+
+    private <R> Stream<R> next(Stream<R> stream) {
+        return new TracedStream<>(stream, run);
+    }
+
+    private <R> R terminal(Supplier<R> operation) {
+        return run.terminal(operation);
+    }
+
+    //intermediate operations
+
+    @Override
+    public Stream<T> filter(Predicate<? super T> predicate) {
+        Stage stage = run.stage("filter", false, true);
+        return next(delegate.filter(element -> {
+            long start = stage.enter();
+            boolean passed;
+            try {
+                passed = predicate.test(element);
+            } finally {
+                stage.exit(start);
+            }
+            if (passed) {
+                stage.passed();
+            }
+            return passed;
+        }));
+    }
+
+    @Override
+    public <R> Stream<R> map(Function<? super T, ? extends R> mapper) {
+        Stage stage = run.stage("map", false, false);
+        return next(delegate.map(element -> {
+            long start = stage.enter();
+            try {
+                return mapper.apply(element);
+            } finally {
+                stage.exit(start);
+            }
+        }));
+    }
+
+    @Override
+    public IntStream mapToInt(ToIntFunction<? super T> mapper) {
+        Stage stage = run.stage("mapToInt", false, false);
+        return new TracedIntStream(delegate.mapToInt(element -> {
+            long start = stage.enter();
+            try {
+                return mapper.applyAsInt(element);
+            } finally {
+                stage.exit(start);
+            }
+        }), run);
+    }
+
+    @Override
+    public LongStream mapToLong(ToLongFunction<? super T> mapper) {
+        Stage stage = run.stage("mapToLong", false, false);
+        return new TracedLongStream(delegate.mapToLong(element -> {
+            long start = stage.enter();
+            try {
+                return mapper.applyAsLong(element);
+            } finally {
+                stage.exit(start);
+            }
+        }), run);
+    }
+
+    @Override
+    public DoubleStream mapToDouble(ToDoubleFunction<? super T> mapper) {
+        Stage stage = run.stage("mapToDouble", false, false);
+        return new TracedDoubleStream(delegate.mapToDouble(element -> {
+            long start = stage.enter();
+            try {
+                return mapper.applyAsDouble(element);
+            } finally {
+                stage.exit(start);
+            }
+        }), run);
+    }
+
+    //the time is the time to create the inner streams, their elements are counted as they come out
+    @Override
+    public <R> Stream<R> flatMap(Function<? super T, ? extends Stream<? extends R>> mapper) {
+        Stage stage = run.stage("flatMap", false, true);
+        return next(delegate.<R>flatMap(element -> {
+            long start = stage.enter();
+            try {
+                return mapper.apply(element);
+            } finally {
+                stage.exit(start);
+            }
+        }).peek(element -> stage.passed()));
+    }
+
+    @Override
+    public IntStream flatMapToInt(Function<? super T, ? extends IntStream> mapper) {
+        Stage stage = run.stage("flatMapToInt", false, true);
+        return new TracedIntStream(delegate.flatMapToInt(element -> {
+            long start = stage.enter();
+            try {
+                return mapper.apply(element);
+            } finally {
+                stage.exit(start);
+            }
+        }).peek(element -> stage.passed()), run);
+    }
+
+    @Override
+    public LongStream flatMapToLong(Function<? super T, ? extends LongStream> mapper) {
+        Stage stage = run.stage("flatMapToLong", false, true);
+        return new TracedLongStream(delegate.flatMapToLong(element -> {
+            long start = stage.enter();
+            try {
+                return mapper.apply(element);
+            } finally {
+                stage.exit(start);
+            }
+        }).peek(element -> stage.passed()), run);
+    }
+
+    @Override
+    public DoubleStream flatMapToDouble(Function<? super T, ? extends DoubleStream> mapper) {
+        Stage stage = run.stage("flatMapToDouble", false, true);
+        return new TracedDoubleStream(delegate.flatMapToDouble(element -> {
+            long start = stage.enter();
+            try {
+                return mapper.apply(element);
+            } finally {
+                stage.exit(start);
+            }
+        }).peek(element -> stage.passed()), run);
+    }
+
+    @Override
+    public Stream<T> distinct() {
+        Stage stage = run.stage("distinct", true, true);
+        return next(delegate.peek(element -> stage.arrived()).distinct().peek(element -> stage.passed()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<T> sorted() {
+        //same ClassCastException as sorted() if the elements aren't Comparable
+        return sortedWith((element1, element2) -> ((Comparable<? super T>) element1).compareTo(element2));
+    }
+
+    @Override
+    public Stream<T> sorted(Comparator<? super T> comparator) {
+        return sortedWith(comparator);
+    }
+
+    //the time is the time in the comparator
+    private Stream<T> sortedWith(Comparator<? super T> comparator) {
+        Stage stage = run.stage("sorted", true, false);
+        return next(delegate.peek(element -> stage.arrived()).sorted((element1, element2) -> {
+            long start = stage.enter();
+            try {
+                return comparator.compare(element1, element2);
+            } finally {
+                stage.exit(start);
+            }
+        }));
+    }
+
+    @Override
+    public Stream<T> peek(Consumer<? super T> action) {
+        Stage stage = run.stage("peek", false, false);
+        return next(delegate.peek(element -> {
+            long start = stage.enter();
+            try {
+                action.accept(element);
+            } finally {
+                stage.exit(start);
+            }
+        }));
+    }
+
+    @Override
+    public Stream<T> limit(long maxSize) {
+        Stage stage = run.stage("limit", true, true);
+        return next(delegate.peek(element -> stage.arrived()).limit(maxSize).peek(element -> stage.passed()));
+    }
+
+    @Override
+    public Stream<T> skip(long n) {
+        Stage stage = run.stage("skip", true, true);
+        return next(delegate.peek(element -> stage.arrived()).skip(n).peek(element -> stage.passed()));
+    }
+
+    @Override
+    public Stream<T> takeWhile(Predicate<? super T> predicate) {
+        Stage stage = run.stage("takeWhile", false, true);
+        return next(delegate.takeWhile(timed(stage, predicate)).peek(element -> stage.passed()));
+    }
+
+    @Override
+    public Stream<T> dropWhile(Predicate<? super T> predicate) {
+        //the predicate isn't called anymore once it returned false, so the input is counted before it
+        Stage stage = run.stage("dropWhile", true, true);
+        return next(delegate.peek(element -> stage.arrived()).dropWhile(timed(stage, predicate))
+                .peek(element -> stage.passed()));
+    }
+
+    private static <T> Predicate<T> timed(Stage stage, Predicate<? super T> predicate) {
+        return element -> {
+            long start = stage.enter();
+            try {
+                return predicate.test(element);
+            } finally {
+                stage.exit(start);
+            }
+        };
+    }
+
+    //terminal operations
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        terminal(() -> {
+            delegate.forEach(action);
+            return null;
+        });
+    }
+
+    @Override
+    public void forEachOrdered(Consumer<? super T> action) {
+        terminal(() -> {
+            delegate.forEachOrdered(action);
+            return null;
+        });
+    }
+
+    @Override
+    public Object[] toArray() {
+        return terminal(delegate::toArray);
+    }
+
+    @Override
+    public <A> A[] toArray(IntFunction<A[]> generator) {
+        return terminal(() -> delegate.toArray(generator));
+    }
+
+    @Override
+    public T reduce(T identity, BinaryOperator<T> accumulator) {
+        return terminal(() -> delegate.reduce(identity, accumulator));
+    }
+
+    @Override
+    public Optional<T> reduce(BinaryOperator<T> accumulator) {
+        return terminal(() -> delegate.reduce(accumulator));
+    }
+
+    @Override
+    public <U> U reduce(U identity, BiFunction<U, ? super T, U> accumulator, BinaryOperator<U> combiner) {
+        return terminal(() -> delegate.reduce(identity, accumulator, combiner));
+    }
+
+    @Override
+    public <R> R collect(Supplier<R> supplier, BiConsumer<R, ? super T> accumulator, BiConsumer<R, R> combiner) {
+        return terminal(() -> delegate.collect(supplier, accumulator, combiner));
+    }
+
+    @Override
+    public <R, A> R collect(Collector<? super T, A, R> collector) {
+        return terminal(() -> delegate.collect(collector));
+    }
+
+    @Override
+    public List<T> toList() {
+        return terminal(delegate::toList);
+    }
+
+    @Override
+    public Optional<T> min(Comparator<? super T> comparator) {
+        return terminal(() -> delegate.min(comparator));
+    }
+
+    @Override
+    public Optional<T> max(Comparator<? super T> comparator) {
+        return terminal(() -> delegate.max(comparator));
+    }
+
+    @Override
+    public long count() {
+        return terminal(delegate::count);
+    }
+
+    @Override
+    public boolean anyMatch(Predicate<? super T> predicate) {
+        return terminal(() -> delegate.anyMatch(predicate));
+    }
+
+    @Override
+    public boolean allMatch(Predicate<? super T> predicate) {
+        return terminal(() -> delegate.allMatch(predicate));
+    }
+
+    @Override
+    public boolean noneMatch(Predicate<? super T> predicate) {
+        return terminal(() -> delegate.noneMatch(predicate));
+    }
+
+    @Override
+    public Optional<T> findFirst() {
+        return terminal(delegate::findFirst);
+    }
+
+    @Override
+    public Optional<T> findAny() {
+        return terminal(delegate::findAny);
+    }
+
+    //not traced, the run is never finished
+    @Override
+    public Iterator<T> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return delegate.spliterator();
+    }
+
+    //BaseStream
+
+    @Override
+    public boolean isParallel() {
+        return delegate.isParallel();
+    }
+
+    @Override
+    public Stream<T> sequential() {
+        return next(delegate.sequential());
+    }
+
+    @Override
+    public Stream<T> parallel() {
+        return next(delegate.parallel());
+    }
+
+    @Override
+    public Stream<T> unordered() {
+        return next(delegate.unordered());
+    }
+
+    @Override
+    public Stream<T> onClose(Runnable closeHandler) {
+        return next(delegate.onClose(closeHandler));
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
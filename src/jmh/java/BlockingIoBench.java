@@ -0,0 +1,85 @@
+package jmh.java;
+
+import examples.utils.BlockingIoExecutors;
+import examples.utils.ConcurrentUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BlockingIoBench {
+    // Every invocation submits `calls` tasks that block for 10 ms (standing in for a remote call) and waits
+    // for all of them. The score is the time for the whole batch. The 1024 thread pool needs calls / 1024 rounds,
+    // the virtual thread executors run up to their cap at once.
+    // The virtual modes need JDK 21, on older JDKs their setup fails. Add -prof gc to compare the allocation.
+
+    private static final long BLOCKING_MILLIS = 10;
+
+    @Param({"largePool", "virtual", "virtualCapped"})
+    public String executorType;
+
+    @Param({"1000", "10000", "100000"})
+    public int calls;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        switch (executorType) {
+            case "largePool":
+                executor = BlockingIoExecutors.newPlatformExecutor(1024);
+                break;
+            case "virtual":
+                executor = BlockingIoExecutors.newVirtualExecutor(Integer.MAX_VALUE);
+                break;
+            case "virtualCapped":
+                // same concurrency as the large pool, the difference is the cost of the waiting tasks
+                executor = BlockingIoExecutors.newVirtualExecutor(1024);
+                break;
+            default:
+                throw new IllegalArgumentException(executorType);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ConcurrentUtils.stop(executor);
+    }
+
+    @Benchmark
+    public int blockingCalls() throws InterruptedException, ExecutionException {
+        List<Future<Integer>> futures = new ArrayList<>(calls);
+        for (int i = 0; i < calls; i++) {
+            int call = i;
+            futures.add(executor.submit(() -> {
+                TimeUnit.MILLISECONDS.sleep(BLOCKING_MILLIS);
+                return call;
+            }));
+        }
+        int sum = 0;
+        for (Future<Integer> future : futures) {
+            sum += future.get();
+        }
+        return sum;
+    }
+}
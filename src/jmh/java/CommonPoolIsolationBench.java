@@ -0,0 +1,88 @@
+package jmh.java;
+
+import examples.utils.AsyncPipeline;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class CommonPoolIsolationBench {
+    // Measures a parallelStream() while a background thread keeps blocking CompletableFuture tasks in flight,
+    // like squareWithHeavyComputation in MainConcurrencyThreadsAndExecutors.
+    // commonPool: the blocking tasks use supplyAsync() without an executor and hold common pool threads
+    // pipeline:   the blocking tasks run on the I/O executor of an AsyncPipeline
+    // none:       no background load, the baseline
+
+    private static final int SIZE = 1_000_000;
+
+    @Param({"none", "commonPool", "pipeline"})
+    public String blockingOn;
+
+    private AsyncPipeline pipeline;
+    private Thread load;
+    private volatile boolean running;
+
+    @Setup
+    public void setup() {
+        pipeline = AsyncPipeline.create(100);
+        running = true;
+        // as many blocking tasks as the common pool has threads
+        int inFlight = ForkJoinPool.getCommonPoolParallelism();
+        load = new Thread(() -> {
+            while (running && !blockingOn.equals("none")) {
+                List<CompletableFuture<Long>> batch = new ArrayList<>(inFlight);
+                for (int i = 0; i < inFlight; i++) {
+                    if (blockingOn.equals("commonPool")) {
+                        batch.add(CompletableFuture.supplyAsync(CommonPoolIsolationBench::block));
+                    } else {
+                        batch.add(pipeline.supplyBlocking("block", CommonPoolIsolationBench::block).toFuture());
+                    }
+                }
+                batch.forEach(CompletableFuture::join);
+            }
+        });
+        load.setDaemon(true);
+        load.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        load.join();
+        pipeline.close();
+    }
+
+    private static long block() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0L;
+    }
+
+    @Benchmark
+    public long parallelStreamSum() {
+        return LongStream.range(0, SIZE).parallel().map(i -> i * i % 7).sum();
+    }
+}
@@ -0,0 +1,103 @@
+package jmh.java;
+
+import examples.Person;
+import examples.utils.ConcurrentCollectors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ConcurrentCollectorBench {
+    // Parallel groupingBy / toMap with the JDK collectors (a map per fork/join task, merged pairwise)
+    // against ConcurrentCollectors (one ConcurrentHashMap).
+    // The parallel stream runs inside a ForkJoinPool of the given parallelism, so threads sets how many
+    // threads collect at the same time. The speedup is the ratio of the scores at the same thread count.
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"1", "8", "64"})
+    public int threads;
+
+    private List<Person> persons;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        String[] names = {"Max", "Peter", "Pamela", "David", "Anna", "Bob"};
+        persons = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            persons.add(new Person(names[random.nextInt(names.length)] + i, random.nextInt(100)));
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    private <R> R collect(Collector<Person, ?, R> collector) throws ExecutionException, InterruptedException {
+        return pool.submit(() -> persons.parallelStream().collect(collector)).get();
+    }
+
+    @Benchmark
+    public Map<Integer, List<Person>> groupingBy() throws Exception {
+        return collect(Collectors.groupingBy(Person::getAge));
+    }
+
+    @Benchmark
+    public Map<Integer, List<Person>> groupingByConcurrent() throws Exception {
+        return collect(Collectors.groupingByConcurrent(Person::getAge));
+    }
+
+    @Benchmark
+    public Map<Integer, List<Person>> concurrentGroupingBy() throws Exception {
+        return collect(ConcurrentCollectors.groupingBy(Person::getAge));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> groupingByCounting() throws Exception {
+        return collect(Collectors.groupingBy(Person::getAge, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> concurrentCounting() throws Exception {
+        return collect(ConcurrentCollectors.counting(Person::getAge));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> toMap() throws Exception {
+        return collect(Collectors.toMap(Person::getAge, p -> (long) p.getName().length(), Long::sum));
+    }
+
+    @Benchmark
+    public ConcurrentMap<Integer, Long> concurrentToMap() throws Exception {
+        return collect(ConcurrentCollectors.toMap(Person::getAge, p -> (long) p.getName().length(), Long::sum));
+    }
+}
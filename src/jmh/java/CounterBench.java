@@ -0,0 +1,68 @@
+package jmh.java;
+
+import examples.utils.StripedCounter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class CounterBench {
+    // The fixes for the lost update of MainSynchronization's count = count + 1, with one thread per core
+    // incrementing the same counter. The score is the total increments per microsecond of all threads.
+
+    private int count;
+    private final Object monitor = new Object();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicInteger atomicInteger = new AtomicInteger();
+    private final LongAdder longAdder = new LongAdder();
+    private final StripedCounter stripedCounter = new StripedCounter();
+
+    @Benchmark
+    public void synchronizedIncrement() {
+        synchronized (monitor) {
+            count = count + 1;
+        }
+    }
+
+    @Benchmark
+    public void reentrantLockIncrement() {
+        lock.lock();
+        try {
+            count = count + 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Benchmark
+    public void atomicIntegerIncrement() {
+        atomicInteger.incrementAndGet();
+    }
+
+    @Benchmark
+    public void longAdderIncrement() {
+        longAdder.increment();
+    }
+
+    @Benchmark
+    public void stripedCounterIncrement() {
+        stripedCounter.increment();
+    }
+}
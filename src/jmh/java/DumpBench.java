@@ -0,0 +1,131 @@
+package jmh.java;
+
+import examples.MainFileIO;
+import examples.utils.DumpIndex;
+import examples.utils.DumpReader;
+import examples.utils.DumpWriter;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class DumpBench {
+    // Compares the DataInputStream/DataOutputStream way of handling the [int length][payload] dump format
+    // with the memory mapped DumpReader and the buffer pooled DumpWriter. Scores are records per second.
+
+    private static final int RECORDS = 100_000;
+
+    private byte[][] payloads;
+    private Path dump;
+    private Path out;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        payloads = new byte[RECORDS][];
+        for (int i = 0; i < RECORDS; i++) {
+            payloads[i] = new byte[16 + random.nextInt(512)];
+            random.nextBytes(payloads[i]);
+        }
+        dump = Files.createTempFile("dump-bench", ".bin");
+        out = Files.createTempFile("dump-bench", ".out");
+        try (DumpWriter writer = DumpWriter.open(dump)) {
+            for (byte[] payload : payloads) {
+                writer.write(payload);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(dump);
+        Files.deleteIfExists(DumpIndex.indexPath(dump));
+        Files.deleteIfExists(out);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void readDataInputStream(Blackhole bh) throws IOException {
+        List<byte[]> messages = MainFileIO.readDumps(dump.toFile());
+        for (byte[] message : messages) {
+            bh.consume(message[0]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void readMapped(Blackhole bh) throws IOException {
+        try (DumpReader reader = DumpReader.open(dump)) {
+            ByteBuffer message;
+            while ((message = reader.next()) != null) {
+                bh.consume(message.get(0));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void readStream(Blackhole bh) {
+        try (Stream<ByteBuffer> stream = DumpReader.stream(dump)) {
+            stream.forEach(message -> bh.consume(message.get(0)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long readIndexedParallel() throws IOException {
+        // the index is built by the first invocation of the warmup and reused afterwards
+        try (Stream<ByteBuffer> stream = DumpIndex.parallelStream(dump)) {
+            return stream.mapToLong(message -> message.get(0)).sum();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void writeDataOutputStream() throws IOException {
+        File file = out.toFile();
+        try (DataOutputStream writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (byte[] payload : payloads) {
+                writer.writeInt(payload.length);
+                writer.write(payload);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void writeBufferPooled() throws IOException {
+        try (DumpWriter writer = DumpWriter.open(out)) {
+            for (byte[] payload : payloads) {
+                writer.write(payload);
+            }
+        }
+    }
+}
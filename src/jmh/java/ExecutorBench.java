@@ -0,0 +1,129 @@
+package jmh.java;
+
+import examples.utils.ConcurrentUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ExecutorBench {
+    // The executor patterns of MainConcurrencyThreadsAndExecutors.
+    // Every invocation submits a batch of small CPU tasks and waits for all of them, scores are tasks per ms.
+
+    private static final int TASKS = 1_000;
+
+    @Param({"fixed", "workStealing", "largePool"})
+    public String executorType;
+
+    @Param({"100"})
+    public int work;
+
+    private ExecutorService executor;
+    private List<Callable<Long>> callables;
+
+    @Setup
+    public void setup() {
+        switch (executorType) {
+            case "fixed":
+                executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+                break;
+            case "workStealing":
+                executor = Executors.newWorkStealingPool();
+                break;
+            case "largePool":
+                // the 1024 thread pool used for blocking I/O
+                executor = new ThreadPoolExecutor(1024, 1024, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(5120));
+                break;
+            default:
+                throw new IllegalArgumentException(executorType);
+        }
+        callables = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            callables.add(this::compute);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ConcurrentUtils.stop(executor);
+    }
+
+    private long compute() {
+        Blackhole.consumeCPU(work);
+        return work;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void submitAndGet(Blackhole bh) throws InterruptedException, ExecutionException {
+        List<Future<Long>> futures = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            futures.add(executor.submit(this::compute));
+        }
+        for (Future<Long> future : futures) {
+            bh.consume(future.get());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void invokeAll(Blackhole bh) throws InterruptedException, ExecutionException {
+        for (Future<Long> future : executor.invokeAll(callables)) {
+            bh.consume(future.get());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void completableFuture(Blackhole bh) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            futures.add(CompletableFuture.supplyAsync(this::compute, executor)
+                    .thenApply(String::valueOf)
+                    .thenApply(value -> String.format("Prefix %s", value)));
+        }
+        for (CompletableFuture<String> future : futures) {
+            bh.consume(future.join());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void completableFutureCommonPool(Blackhole bh) {
+        // the executorType param doesn't matter here, supplyAsync without an executor runs in the common pool
+        List<CompletableFuture<Long>> futures = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            futures.add(CompletableFuture.supplyAsync(this::compute));
+        }
+        for (CompletableFuture<Long> future : futures) {
+            bh.consume(future.join());
+        }
+    }
+}
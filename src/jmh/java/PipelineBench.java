@@ -0,0 +1,90 @@
+package jmh.java;
+
+import examples.Person;
+import examples.utils.Pipeline;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PipelineBench {
+    // A report job that renders every person into a line and then drops most lines:
+    // the stream as written (map before filter), the same written by hand with filter first,
+    // and Pipeline reordering the declared order, run as stream chain and as loop
+
+    @Param({"100000"})
+    public int size;
+
+    private List<Person> persons;
+    private Pipeline<Person, String> pipeline;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        String[] names = {"Max", "Peter", "Pamela", "David", "Anna", "Bob"};
+        persons = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            persons.add(new Person(names[random.nextInt(names.length)] + i, random.nextInt(100)));
+        }
+        pipeline = Pipeline.of(persons)
+                .map(PipelineBench::render, Pipeline.Hints.pure().named("render").cost(50))
+                .map(String::toUpperCase, Pipeline.Hints.pure().named("toUpperCase").cost(10))
+                .filterSource(p -> p.getAge() >= 90, Pipeline.Hints.pure().named("age >= 90").selectivity(0.1));
+    }
+
+    private static String render(Person person) {
+        return String.format("%-12s;%3d;%s", person.getName(), person.getAge(), person.getAge() >= 18 ? "adult" : "minor");
+    }
+
+    // the age is read back from the rendered line "NAME        ; 93;ADULT"
+    private static int ageOf(String line) {
+        int start = line.indexOf(';') + 1;
+        return Integer.parseInt(line.substring(start, line.indexOf(';', start)).trim());
+    }
+
+    @Benchmark
+    public List<String> mapThenFilter() {
+        return persons.stream()
+                .map(PipelineBench::render)
+                .map(String::toUpperCase)
+                .filter(line -> ageOf(line) >= 90)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> filterThenMap() {
+        return persons.stream()
+                .filter(p -> p.getAge() >= 90)
+                .map(PipelineBench::render)
+                .map(String::toUpperCase)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> pipelineStream() {
+        return pipeline.stream().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> pipelineLoop() {
+        return pipeline.toList();
+    }
+}
@@ -0,0 +1,110 @@
+package jmh.java;
+
+import examples.utils.OptimisticMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ReadMostlyMapBench {
+    // Config style lookups: one thread per core, every operation is a get or, writesPerThousand times
+    // out of a thousand, a put. 1, 10 and 100 are the 99.9/0.1, 99/1 and 90/10 read/write mixes.
+
+    private static final int KEYS = 1024;
+
+    @Param({"1", "10", "100"})
+    public int writesPerThousand;
+
+    @Param({"optimistic", "concurrentHashMap", "readWriteLock"})
+    public String mapType;
+
+    private String[] keys;
+    private OptimisticMap<String, String> optimisticMap;
+    private Map<String, String> concurrentHashMap;
+    private ReadWriteLockMap readWriteLockMap;
+
+    // The ReentrantReadWriteLock + HashMap combination of MainSynchronization
+    static class ReadWriteLockMap {
+        private final Map<String, String> map = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        String get(String key) {
+            lock.readLock().lock();
+            try {
+                return map.get(key);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void put(String key, String value) {
+            lock.writeLock().lock();
+            try {
+                map.put(key, value);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Setup
+    public void setup() {
+        keys = new String[KEYS];
+        Map<String, String> initial = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "config.key." + i;
+            initial.put(keys[i], "value" + i);
+        }
+        optimisticMap = new OptimisticMap<>(initial);
+        concurrentHashMap = new ConcurrentHashMap<>(initial);
+        readWriteLockMap = new ReadWriteLockMap();
+        initial.forEach(readWriteLockMap::put);
+    }
+
+    @Benchmark
+    public String mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = keys[random.nextInt(KEYS)];
+        boolean write = random.nextInt(1000) < writesPerThousand;
+        switch (mapType) {
+            case "optimistic":
+                if (write) {
+                    return optimisticMap.put(key, key);
+                }
+                return optimisticMap.get(key);
+            case "concurrentHashMap":
+                if (write) {
+                    return concurrentHashMap.put(key, key);
+                }
+                return concurrentHashMap.get(key);
+            default:
+                if (write) {
+                    readWriteLockMap.put(key, key);
+                    return key;
+                }
+                return readWriteLockMap.get(key);
+        }
+    }
+}
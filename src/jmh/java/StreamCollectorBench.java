@@ -0,0 +1,170 @@
+package jmh.java;
+
+import examples.Person;
+import examples.utils.LongLongHashMap;
+import examples.utils.LongObjectHashMap;
+import examples.utils.PrimitiveCollectors;
+import examples.utils.RopeJoiner;
+import examples.utils.StreamTracer;
+import java.util.ArrayList;
+import java.util.DoubleSummaryStatistics;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class StreamCollectorBench {
+    // The collector examples of MainStreamBuilding over a larger list of persons
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private List<Person> persons;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        String[] names = {"Max", "Peter", "Pamela", "David", "Anna", "Bob"};
+        persons = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            persons.add(new Person(names[random.nextInt(names.length)] + i, random.nextInt(100)));
+        }
+    }
+
+    private Stream<Person> stream() {
+        return parallel ? persons.parallelStream() : persons.stream();
+    }
+
+    @Benchmark
+    public List<Person> toList() {
+        return stream()
+                .filter(p -> p.getName().startsWith("P"))
+                .collect(Collectors.toList());
+    }
+
+    // toList() with StreamTracer: the overhead of counting every element and timing a sample
+    @Benchmark
+    public List<Person> tracedToList() {
+        return StreamTracer.trace("toList", stream())
+                .filter(p -> p.getName().startsWith("P"))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Map<Integer, List<Person>> groupingBy() {
+        return stream().collect(Collectors.groupingBy(p -> p.getAge()));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> groupingByCounting() {
+        return stream().collect(Collectors.groupingBy(p -> p.getAge(), Collectors.counting()));
+    }
+
+    @Benchmark
+    public LongLongHashMap primitiveCountingByInt() {
+        return stream().collect(PrimitiveCollectors.countingByInt(Person::getAge));
+    }
+
+    @Benchmark
+    public Map<Integer, IntSummaryStatistics> groupingBySummarizingInt() {
+        return stream().collect(Collectors.groupingBy(p -> p.getAge(), Collectors.summarizingInt(p -> p.getName().length())));
+    }
+
+    @Benchmark
+    public LongObjectHashMap<IntSummaryStatistics> primitiveSummarizingByInt() {
+        return stream().collect(PrimitiveCollectors.summarizingByInt(Person::getAge, p -> p.getName().length()));
+    }
+
+    @Benchmark
+    public Double averagingDouble() {
+        return stream().collect(Collectors.averagingDouble(p -> p.getAge()));
+    }
+
+    @Benchmark
+    public DoubleSummaryStatistics summarizingDouble() {
+        return stream().collect(Collectors.summarizingDouble(p -> p.getAge()));
+    }
+
+    @Benchmark
+    public IntSummaryStatistics summarizingInt() {
+        return stream().collect(Collectors.summarizingInt(p -> p.getAge()));
+    }
+
+    @Benchmark
+    public String joining() {
+        return stream()
+                .filter(p -> p.getAge() >= 18)
+                .map(p -> p.getName())
+                .collect(Collectors.joining(" and ", "In USA ", " are of legal age."));
+    }
+
+    @Benchmark
+    public String ropeJoining() {
+        return stream()
+                .filter(p -> p.getAge() >= 18)
+                .map(p -> p.getName())
+                .collect(RopeJoiner.joining(" and ", "In USA ", " are of legal age.", RopeJoiner.Case.AS_IS));
+    }
+
+    @Benchmark
+    public Map<Integer, String> toMap() {
+        return stream()
+                .collect(Collectors.toMap(
+                        p -> p.getAge(),
+                        p -> p.getName(),
+                        (name1, name2) -> name1 + "; " + name2));
+    }
+
+    @Benchmark
+    public String customCollector() {
+        Collector<Person, StringJoiner, String> personNameCollector =
+                Collector.of(
+                        () -> new StringJoiner(" | "),
+                        (j, p) -> j.add(p.getName().toUpperCase()),
+                        (j1, j2) -> j1.merge(j2),
+                        StringJoiner::toString);
+        return stream().collect(personNameCollector);
+    }
+
+    @Benchmark
+    public String ropeJoiningUpperCase() {
+        return stream()
+                .map(p -> p.getName())
+                .collect(RopeJoiner.joining(" | ", "", "", RopeJoiner.Case.UPPER));
+    }
+
+    @Benchmark
+    public Integer reduce() {
+        return stream().reduce(0, (sum, p) -> sum += p.getAge(), (sum1, sum2) -> sum1 + sum2);
+    }
+
+    @Benchmark
+    public int mapToIntSum() {
+        return stream().mapToInt(Person::getAge).sum();
+    }
+}
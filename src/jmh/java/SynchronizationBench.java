@@ -0,0 +1,114 @@
+package jmh.java;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SynchronizationBench {
+    // The lock variants of MainSynchronization with 4 threads hitting the same state.
+    // Change @Threads to see how each variant behaves under more contention.
+
+    private int count;
+    private final Object monitor = new Object();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private final StampedLock stampedLock = new StampedLock();
+    private final Semaphore semaphore = new Semaphore(5);
+    private final Map<String, String> map = new HashMap<>();
+
+    @Setup
+    public void setup() {
+        map.put("foo", "bar");
+    }
+
+    @Benchmark
+    public int unsynchronizedIncrement() {
+        // loses updates, only here as the baseline
+        return ++count;
+    }
+
+    @Benchmark
+    public int synchronizedIncrement() {
+        synchronized (monitor) {
+            return ++count;
+        }
+    }
+
+    @Benchmark
+    public int reentrantLockIncrement() {
+        lock.lock();
+        try {
+            return ++count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Benchmark
+    public String readWriteLockRead() {
+        readWriteLock.readLock().lock();
+        try {
+            return map.get("foo");
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    @Benchmark
+    public String stampedLockRead() {
+        long stamp = stampedLock.readLock();
+        try {
+            return map.get("foo");
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+    }
+
+    @Benchmark
+    public String stampedLockOptimisticRead() {
+        long stamp = stampedLock.tryOptimisticRead();
+        String value = map.get("foo");
+        if (!stampedLock.validate(stamp)) {
+            stamp = stampedLock.readLock();
+            try {
+                value = map.get("foo");
+            } finally {
+                stampedLock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    @Benchmark
+    public int semaphoreAcquireRelease() throws InterruptedException {
+        semaphore.acquire();
+        try {
+            return count;
+        } finally {
+            semaphore.release();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package jmh.java;
+
+import examples.utils.TimingWheel;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class TimerBench {
+    // Request timeouts: every operation schedules a 30 second timeout and cancels the oldest one,
+    // so `outstanding` timeouts are pending all the time, like requests in flight.
+    // The ScheduledThreadPoolExecutor removes cancelled tasks from its heap (setRemoveOnCancelPolicy),
+    // otherwise they'd pile up until their delay runs out.
+
+    private static final Runnable NOOP = () -> { };
+
+    @Param({"1000", "100000"})
+    public int outstanding;
+
+    private ScheduledThreadPoolExecutor scheduledExecutor;
+    private TimingWheel timingWheel;
+    private ScheduledFuture<?>[] futures;
+    private TimingWheel.Timeout[] timeouts;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        scheduledExecutor = new ScheduledThreadPoolExecutor(1);
+        scheduledExecutor.setRemoveOnCancelPolicy(true);
+        timingWheel = new TimingWheel();
+        futures = new ScheduledFuture<?>[outstanding];
+        timeouts = new TimingWheel.Timeout[outstanding];
+        for (int i = 0; i < outstanding; i++) {
+            futures[i] = scheduledExecutor.schedule(NOOP, 30, TimeUnit.SECONDS);
+            timeouts[i] = timingWheel.schedule(NOOP, 30, TimeUnit.SECONDS);
+        }
+        next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        // the pending timeouts don't matter, shutdown() would wait for them
+        scheduledExecutor.shutdownNow();
+        timingWheel.close();
+    }
+
+    @Benchmark
+    public boolean scheduledThreadPoolExecutor() {
+        int slot = next;
+        next = slot + 1 == outstanding ? 0 : slot + 1;
+        boolean cancelled = futures[slot].cancel(false);
+        futures[slot] = scheduledExecutor.schedule(NOOP, 30, TimeUnit.SECONDS);
+        return cancelled;
+    }
+
+    @Benchmark
+    public boolean timingWheel() {
+        int slot = next;
+        next = slot + 1 == outstanding ? 0 : slot + 1;
+        boolean cancelled = timeouts[slot].cancel();
+        timeouts[slot] = timingWheel.schedule(NOOP, 30, TimeUnit.SECONDS);
+        return cancelled;
+    }
+}